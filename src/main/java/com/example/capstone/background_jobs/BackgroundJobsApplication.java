@@ -2,8 +2,10 @@ package com.example.capstone.background_jobs;
 
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.scheduling.annotation.EnableScheduling;
 
 @SpringBootApplication
+@EnableScheduling
 public class BackgroundJobsApplication {
 
 	public static void main(String[] args) {
@@ -0,0 +1,108 @@
+package com.example.capstone.background_jobs.backpressure;
+
+import com.example.capstone.background_jobs.executor.JobLanes;
+import com.example.capstone.background_jobs.executor.KeyedJobExecutor;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.kafka.config.KafkaListenerEndpointRegistry;
+import org.springframework.kafka.listener.MessageListenerContainer;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+/**
+ * Keeps consumption of jfc-bg-job-topic in line with what the job lanes can absorb.
+ *
+ * Every tick it looks at the fullest lane and the lane error rate since the last tick. Under
+ * pressure the main listener container is paused (its partitions stop being fetched, the
+ * consumer stays in the group); it is resumed once both are back under the resume thresholds.
+ * The two sets of thresholds give hysteresis, so the container doesn't flap.
+ *
+ * Downstream rate limits are not a signal here: the container is shared by every tenant, and
+ * one tenant's exhausted GitHub token must not stop the others. GithubRateLimiter paces each
+ * token on its own, and jobs that would wait too long go through the retry topics.
+ *
+ * max.poll.records is left alone: the consumer only reads it on creation, and restarting the
+ * container to change it would force a rebalance of the whole group.
+ */
+@Component
+public class BackpressureController implements MeterBinder {
+
+    public static final String LISTENER_ID = "jfcJobListener";
+
+    private final KafkaListenerEndpointRegistry registry;
+    private final JobLanes lanes;
+
+    private final boolean enabled;
+    private final double pauseSaturation;
+    private final double resumeSaturation;
+    private final double pauseErrorRate;
+    private final long minSamples;
+
+    private volatile boolean paused;
+    private volatile double lastErrorRate;
+    private long lastFinished;
+    private long lastErrors;
+
+    public BackpressureController(KafkaListenerEndpointRegistry registry,
+                                  JobLanes lanes,
+                                  @Value("${jobs.backpressure.enabled:true}") boolean enabled,
+                                  @Value("${jobs.backpressure.pause-saturation:0.8}") double pauseSaturation,
+                                  @Value("${jobs.backpressure.resume-saturation:0.5}") double resumeSaturation,
+                                  @Value("${jobs.backpressure.pause-error-rate:0.5}") double pauseErrorRate,
+                                  @Value("${jobs.backpressure.min-samples:20}") long minSamples) {
+        this.registry = registry;
+        this.lanes = lanes;
+        this.enabled = enabled;
+        this.pauseSaturation = pauseSaturation;
+        this.resumeSaturation = resumeSaturation;
+        this.pauseErrorRate = pauseErrorRate;
+        this.minSamples = minSamples;
+    }
+
+    @Scheduled(fixedDelayString = "${jobs.backpressure.interval-ms:1000}")
+    public void evaluate() {
+        MessageListenerContainer container = registry.getListenerContainer(LISTENER_ID);
+        if (!enabled || container == null || !container.isRunning()) {
+            return;
+        }
+
+        double saturation = 0;
+        long finished = 0;
+        long errors = 0;
+        for (KeyedJobExecutor lane : lanes.all()) {
+            saturation = Math.max(saturation, lane.getSaturation());
+            long laneErrors = lane.getFailed() + lane.getTimedOut() + lane.getRejected();
+            errors += laneErrors;
+            finished += lane.getCompleted() + laneErrors;
+        }
+
+        long sampleSize = finished - lastFinished;
+        lastErrorRate = sampleSize >= minSamples ? (double) (errors - lastErrors) / sampleSize : 0;
+        lastFinished = finished;
+        lastErrors = errors;
+
+        if (!paused && (saturation >= pauseSaturation || lastErrorRate >= pauseErrorRate)) {
+            container.pause();
+            paused = true;
+            System.out.println("[background-jobs] Pausing " + LISTENER_ID + " => saturation=" + saturation
+                    + " errorRate=" + lastErrorRate);
+        } else if (paused && saturation <= resumeSaturation && lastErrorRate < pauseErrorRate) {
+            container.resume();
+            paused = false;
+            System.out.println("[background-jobs] Resuming " + LISTENER_ID + " => saturation=" + saturation
+                    + " errorRate=" + lastErrorRate);
+        }
+    }
+
+    public boolean isPaused() {
+        return paused;
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        Gauge.builder("bgjobs.backpressure.paused", this, c -> c.isPaused() ? 1 : 0).register(registry);
+        Gauge.builder("bgjobs.backpressure.error_rate", this, c -> c.lastErrorRate).register(registry);
+    }
+}
@@ -1,5 +1,6 @@
 package com.example.capstone.background_jobs.config;
 
+import co.elastic.clients.elasticsearch.ElasticsearchAsyncClient;
 import co.elastic.clients.elasticsearch.ElasticsearchClient;
 import co.elastic.clients.json.jackson.JacksonJsonpMapper;
 import co.elastic.clients.transport.rest_client.RestClientTransport;
@@ -31,4 +32,10 @@ public class ElasticsearchConfig {
         // Build the high-level client
         return new ElasticsearchClient(transport);
     }
+
+    // Same transport (and connections) as the blocking client, for requests that overlap
+    @Bean
+    public ElasticsearchAsyncClient elasticsearchAsyncClient(ElasticsearchClient elasticsearchClient) {
+        return new ElasticsearchAsyncClient(elasticsearchClient._transport());
+    }
 }
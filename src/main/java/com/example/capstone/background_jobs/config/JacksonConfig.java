@@ -0,0 +1,22 @@
+package com.example.capstone.background_jobs.config;
+
+import com.fasterxml.jackson.module.blackbird.BlackbirdModule;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Tuning for the single ObjectMapper Spring Boot builds for us. Boot registers every Module bean
+ * on that mapper, and the consumer, the service and AcknowledgementProducer all inject it instead
+ * of creating their own.
+ */
+@Configuration
+public class JacksonConfig {
+
+    /**
+     * Replaces reflective getter/setter calls with generated lambdas for (de)serialization.
+     */
+    @Bean
+    public BlackbirdModule blackbirdModule() {
+        return new BlackbirdModule();
+    }
+}
@@ -0,0 +1,77 @@
+package com.example.capstone.background_jobs.config;
+
+import com.example.capstone.background_jobs.executor.JobLanes;
+import com.example.capstone.background_jobs.executor.KeyedJobExecutor;
+import com.example.capstone.background_jobs.executor.PriorityJobScheduler;
+import com.example.capstone.background_jobs.model.EventTypes;
+import com.example.capstone.background_jobs.model.Severity;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.env.Environment;
+
+import java.time.Duration;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+@Configuration
+public class JobExecutionConfig {
+
+    // Event types that get their own lane; the rest never reach the dispatcher
+    private static final List<EventTypes> LANE_TYPES = List.of(
+            EventTypes.UPDATE_FINDING, EventTypes.CREATE_TICKET, EventTypes.TRANSITION_TICKET, EventTypes.NEW_SCAN);
+
+    private static final List<String> TOOL_TYPES = List.of("SECRET_SCANNING", "CODE_SCANNING", "DEPENDABOT");
+
+    // Defaults for jobs.runbook-actions.severity-slack.<severity>
+    private static final Map<Severity, Duration> DEFAULT_SEVERITY_SLACK = Map.of(
+            Severity.CRITICAL, Duration.ZERO,
+            Severity.HIGH, Duration.ofSeconds(5),
+            Severity.MEDIUM, Duration.ofSeconds(30),
+            Severity.LOW, Duration.ofMinutes(2),
+            Severity.INFORMATIONAL, Duration.ofMinutes(5));
+
+    /**
+     * Builds one lane per job type from jobs.lanes.&lt;type&gt;.{concurrency,queue-depth,timeout},
+     * falling back to jobs.lanes.default.* for anything not set.
+     */
+    @Bean
+    public JobLanes jobLanes(Environment env) {
+        Map<EventTypes, KeyedJobExecutor> lanes = new EnumMap<>(EventTypes.class);
+        for (EventTypes type : LANE_TYPES) {
+            String prefix = "jobs.lanes." + type.name().toLowerCase().replace('_', '-') + ".";
+            int concurrency = env.getProperty(prefix + "concurrency", Integer.class,
+                    env.getProperty("jobs.lanes.default.concurrency", Integer.class, 4));
+            int queueDepth = env.getProperty(prefix + "queue-depth", Integer.class,
+                    env.getProperty("jobs.lanes.default.queue-depth", Integer.class, 500));
+            Duration timeout = env.getProperty(prefix + "timeout", Duration.class,
+                    env.getProperty("jobs.lanes.default.timeout", Duration.class, Duration.ofMinutes(1)));
+
+            lanes.put(type, new KeyedJobExecutor(type.name(), concurrency, queueDepth, timeout));
+        }
+        return new JobLanes(lanes);
+    }
+
+    /**
+     * Priority scheduler for the actions NEW_SCAN runbooks generate. Slack per severity and per
+     * tool type comes from jobs.runbook-actions.{severity-slack,tool-slack}.&lt;name&gt;.
+     */
+    @Bean
+    public PriorityJobScheduler runbookActionScheduler(Environment env) {
+        int concurrency = env.getProperty("jobs.runbook-actions.concurrency", Integer.class, 4);
+        Map<Severity, Duration> severitySlack = new EnumMap<>(Severity.class);
+        for (Severity severity : Severity.values()) {
+            severitySlack.put(severity, env.getProperty(
+                    "jobs.runbook-actions.severity-slack." + severity.name().toLowerCase(),
+                    Duration.class, DEFAULT_SEVERITY_SLACK.get(severity)));
+        }
+        Map<String, Duration> toolSlack = new HashMap<>();
+        for (String tool : TOOL_TYPES) {
+            toolSlack.put(tool, env.getProperty(
+                    "jobs.runbook-actions.tool-slack." + tool.toLowerCase().replace('_', '-'),
+                    Duration.class, Duration.ZERO));
+        }
+        return new PriorityJobScheduler("runbook-actions", concurrency, severitySlack, toolSlack);
+    }
+}
@@ -1,29 +1,90 @@
 package com.example.capstone.background_jobs.config;
 
+import com.example.capstone.background_jobs.retry.JobRetryRouter;
 import org.apache.kafka.clients.consumer.ConsumerConfig;
 import org.apache.kafka.clients.producer.ProducerConfig;
+import org.apache.kafka.common.TopicPartition;
+import org.apache.kafka.common.serialization.ByteArrayDeserializer;
+import org.apache.kafka.common.serialization.ByteArraySerializer;
 import org.apache.kafka.common.serialization.StringDeserializer;
 import org.apache.kafka.common.serialization.StringSerializer;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.kafka.annotation.EnableKafka;
+import org.springframework.kafka.annotation.EnableKafkaRetryTopic;
 import org.springframework.kafka.config.ConcurrentKafkaListenerContainerFactory;
 import org.springframework.kafka.core.*;
+import org.springframework.kafka.listener.ContainerProperties;
+import org.springframework.kafka.listener.DeadLetterPublishingRecoverer;
+import org.springframework.kafka.listener.DefaultErrorHandler;
+import org.springframework.kafka.retrytopic.RetryTopicConfiguration;
+import org.springframework.kafka.retrytopic.RetryTopicConfigurationBuilder;
+import org.springframework.kafka.retrytopic.TopicSuffixingStrategy;
+import org.springframework.kafka.support.serializer.ErrorHandlingDeserializer;
+import org.springframework.util.backoff.FixedBackOff;
 
 import java.util.HashMap;
 import java.util.Map;
 
 @EnableKafka
+@EnableKafkaRetryTopic
 @Configuration
 public class KafkaConfig {
 
+    private static final String DLT_SUFFIX = "-dlt";
+
     @Value("${spring.kafka.bootstrap-servers}")
     private String bootstrapServers;
 
     @Value("${spring.kafka.consumer.group-id}")
     private String groupId;
 
+    @Value("${kafka.consumer.batch-enabled:false}")
+    private boolean batchEnabled;
+
+    @Value("${kafka.consumer.max-poll-records:500}")
+    private int maxPollRecords;
+
+    @Value("${kafka.consumer.concurrency:1}")
+    private int concurrency;
+
+    @Value("${kafka.topics.jfc-bg-job-retry-topic}")
+    private String retryTopic;
+
+    @Value("${kafka.retry.attempts:4}")
+    private int retryAttempts;
+
+    @Value("${kafka.retry.initial-delay-ms:5000}")
+    private long retryInitialDelayMs;
+
+    @Value("${kafka.retry.multiplier:6.0}")
+    private double retryMultiplier;
+
+    @Value("${kafka.retry.max-delay-ms:300000}")
+    private long retryMaxDelayMs;
+
+    @Value("${kafka.producer.ack.linger-ms:20}")
+    private int ackLingerMs;
+
+    @Value("${kafka.producer.ack.batch-size:65536}")
+    private int ackBatchSize;
+
+    @Value("${kafka.producer.ack.compression-type:zstd}")
+    private String ackCompressionType;
+
+    @Value("${kafka.producer.ack.delivery-timeout-ms:120000}")
+    private int ackDeliveryTimeoutMs;
+
+    @Value("${kafka.producer.ack.max-block-ms:5000}")
+    private long ackMaxBlockMs;
+
+    @Value("${kafka.topics.partition-count:1}")
+    private int partitionCount;
+
+    @Value("${kafka.topics.replication-factor:1}")
+    private short replicationFactor;
+
     /**
      * Basic consumer configuration (no topic creation here).
      */
@@ -32,24 +93,86 @@ public class KafkaConfig {
         Map<String, Object> props = new HashMap<>();
         props.put(ConsumerConfig.BOOTSTRAP_SERVERS_CONFIG, bootstrapServers);
         props.put(ConsumerConfig.GROUP_ID_CONFIG, groupId);
-        props.put(ConsumerConfig.KEY_DESERIALIZER_CLASS_CONFIG, StringDeserializer.class);
-        props.put(ConsumerConfig.VALUE_DESERIALIZER_CLASS_CONFIG, StringDeserializer.class);
+        // ErrorHandlingDeserializer turns a poison record into an error-handler call instead of a poll loop
+        props.put(ConsumerConfig.KEY_DESERIALIZER_CLASS_CONFIG, ErrorHandlingDeserializer.class);
+        props.put(ErrorHandlingDeserializer.KEY_DESERIALIZER_CLASS, StringDeserializer.class);
+        // Raw bytes: JobEventDecoder binds them without an intermediate String
+        props.put(ConsumerConfig.VALUE_DESERIALIZER_CLASS_CONFIG, ErrorHandlingDeserializer.class);
+        props.put(ErrorHandlingDeserializer.VALUE_DESERIALIZER_CLASS, ByteArrayDeserializer.class);
         props.put(ConsumerConfig.AUTO_OFFSET_RESET_CONFIG, "latest");
+        props.put(ConsumerConfig.MAX_POLL_RECORDS_CONFIG, maxPollRecords);
+        props.put(ConsumerConfig.ENABLE_AUTO_COMMIT_CONFIG, false);
         return props;
     }
 
     @Bean
-    public ConsumerFactory<String, String> consumerFactory() {
+    public ConsumerFactory<String, byte[]> consumerFactory() {
         return new DefaultKafkaConsumerFactory<>(consumerConfigs());
     }
 
+    /**
+     * With kafka.consumer.batch-enabled=true the container hands the listener a whole poll
+     * as List&lt;ConsumerRecord&gt; (see BackgroundJobsBatchConsumer) instead of one record at a time.
+     *
+     * Jobs finish on worker threads, so offsets are committed manually. In record mode the acks
+     * arrive out of order and asyncAcks makes the container commit only contiguous offsets.
+     */
     @Bean
-    public ConcurrentKafkaListenerContainerFactory<String, String> kafkaListenerContainerFactory() {
-        var factory = new ConcurrentKafkaListenerContainerFactory<String, String>();
+    public ConcurrentKafkaListenerContainerFactory<String, byte[]> kafkaListenerContainerFactory() {
+        var factory = new ConcurrentKafkaListenerContainerFactory<String, byte[]>();
         factory.setConsumerFactory(consumerFactory());
+        factory.setBatchListener(batchEnabled);
+        factory.setConcurrency(concurrency);
+        factory.getContainerProperties().setAckMode(ContainerProperties.AckMode.MANUAL);
+        factory.getContainerProperties().setAsyncAcks(!batchEnabled);
+        factory.setCommonErrorHandler(deadLetterErrorHandler());
         return factory;
     }
 
+    /**
+     * Anything the listener itself throws (in practice deserialization failures) is published
+     * to the dead-letter topic once, without blocking retries on the partition.
+     */
+    @Bean
+    public DefaultErrorHandler deadLetterErrorHandler() {
+        var recoverer = new DeadLetterPublishingRecoverer(retryKafkaTemplate(),
+                (record, ex) -> new TopicPartition(retryTopic + DLT_SUFFIX, -1));
+        return new DefaultErrorHandler(recoverer, new FixedBackOff(0L, 0L));
+    }
+
+    /**
+     * Record-at-a-time, auto-committing factory for the retry topic, its delayed tiers and the DLT.
+     */
+    @Bean
+    public ConcurrentKafkaListenerContainerFactory<String, byte[]> retryKafkaListenerContainerFactory() {
+        var factory = new ConcurrentKafkaListenerContainerFactory<String, byte[]>();
+        factory.setConsumerFactory(consumerFactory());
+        return factory;
+    }
+
+    /**
+     * Non-blocking retries for jobs the JobRetryRouter parked in the retry topic:
+     * jfc-bg-job-retry -> -tier-0 (5s) -> -tier-1 (30s) -> -tier-2 (3m) -> -dlt.
+     * Only transient failures move on to the next tier; the rest go straight to the DLT,
+     * whose handler acks the job as FAILURE.
+     */
+    @Bean
+    public RetryTopicConfiguration jobRetryTopicConfiguration() {
+        return RetryTopicConfigurationBuilder.newInstance()
+                .includeTopic(retryTopic)
+                .maxAttempts(retryAttempts)
+                .exponentialBackoff(retryInitialDelayMs, retryMultiplier, retryMaxDelayMs)
+                .retryOn(JobRetryRouter.RETRYABLE_EXCEPTIONS)
+                .traversingCauses()
+                .retryTopicSuffix("-tier")
+                .dltSuffix(DLT_SUFFIX)
+                .setTopicSuffixingStrategy(TopicSuffixingStrategy.SUFFIX_WITH_INDEX_VALUE)
+                .autoCreateTopicsWith(partitionCount, replicationFactor)
+                .listenerFactory(retryKafkaListenerContainerFactory())
+                .dltHandlerMethod("jobRetryConsumer", "onDeadLetter")
+                .create(retryKafkaTemplate());
+    }
+
     /**
      * Basic producer configuration (no topic creation here).
      */
@@ -71,4 +194,44 @@ public class KafkaConfig {
     public KafkaTemplate<String, String> kafkaTemplate() {
         return new KafkaTemplate<>(producerFactory());
     }
+
+    /**
+     * Byte-valued template used to move job records into the retry and dead-letter topics untouched.
+     */
+    @Bean
+    public ProducerFactory<String, byte[]> retryProducerFactory() {
+        Map<String, Object> props = new HashMap<>(producerConfigs());
+        props.put(ProducerConfig.VALUE_SERIALIZER_CLASS_CONFIG, ByteArraySerializer.class);
+        return new DefaultKafkaProducerFactory<>(props);
+    }
+
+    @Bean
+    public KafkaTemplate<String, byte[]> retryKafkaTemplate() {
+        return new KafkaTemplate<>(retryProducerFactory());
+    }
+
+    /**
+     * Producer for job acknowledgements, tuned for throughput under bursts: records are batched
+     * for up to linger-ms and compressed, and idempotence (acks=all) lets the producer retry
+     * without duplicating or reordering acks within a partition.
+     */
+    @Bean
+    public ProducerFactory<String, byte[]> ackProducerFactory() {
+        Map<String, Object> props = new HashMap<>(producerConfigs());
+        props.put(ProducerConfig.VALUE_SERIALIZER_CLASS_CONFIG, ByteArraySerializer.class);
+        props.put(ProducerConfig.LINGER_MS_CONFIG, ackLingerMs);
+        props.put(ProducerConfig.BATCH_SIZE_CONFIG, ackBatchSize);
+        props.put(ProducerConfig.COMPRESSION_TYPE_CONFIG, ackCompressionType);
+        props.put(ProducerConfig.ENABLE_IDEMPOTENCE_CONFIG, true);
+        props.put(ProducerConfig.ACKS_CONFIG, "all");
+        props.put(ProducerConfig.MAX_IN_FLIGHT_REQUESTS_PER_CONNECTION, 5);
+        props.put(ProducerConfig.DELIVERY_TIMEOUT_MS_CONFIG, ackDeliveryTimeoutMs);
+        props.put(ProducerConfig.MAX_BLOCK_MS_CONFIG, ackMaxBlockMs);
+        return new DefaultKafkaProducerFactory<>(props);
+    }
+
+    @Bean
+    public KafkaTemplate<String, byte[]> ackKafkaTemplate() {
+        return new KafkaTemplate<>(ackProducerFactory());
+    }
 }
@@ -0,0 +1,130 @@
+package com.example.capstone.background_jobs.config;
+
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.binder.httpcomponents.hc5.PoolingHttpClientConnectionManagerMetricsBinder;
+import org.apache.hc.client5.http.HttpRoute;
+import org.apache.hc.client5.http.config.ConnectionConfig;
+import org.apache.hc.client5.http.config.RequestConfig;
+import org.apache.hc.client5.http.config.TlsConfig;
+import org.apache.hc.client5.http.impl.async.CloseableHttpAsyncClient;
+import org.apache.hc.client5.http.impl.async.HttpAsyncClients;
+import org.apache.hc.client5.http.impl.nio.PoolingAsyncClientConnectionManager;
+import org.apache.hc.client5.http.impl.nio.PoolingAsyncClientConnectionManagerBuilder;
+import org.apache.hc.client5.http.ssl.DefaultClientTlsStrategy;
+import org.apache.hc.core5.http.HttpHost;
+import org.apache.hc.core5.http2.HttpVersionPolicy;
+import org.apache.hc.core5.pool.PoolConcurrencyPolicy;
+import org.apache.hc.core5.pool.PoolReusePolicy;
+import org.apache.hc.core5.reactor.IOReactorConfig;
+import org.apache.hc.core5.ssl.SSLContexts;
+import org.apache.hc.core5.util.TimeValue;
+import org.apache.hc.core5.util.Timeout;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.time.Duration;
+
+/**
+ * Outbound HTTP for the GitHub and Jira calls: one non-blocking HttpClient 5 with a pooled,
+ * keep-alive connection manager, driven by a few I/O reactor threads (see OutboundHttp).
+ *
+ * TLS connections negotiate HTTP/2 via ALPN where the server offers it and fall back to
+ * HTTP/1.1. All of them come from one SSLContext, so its session cache lets reconnects resume
+ * instead of doing a full handshake. The pool hands out the most recently used connection
+ * first (LIFO) so a few warm connections do most of the work and the rest go idle and get
+ * evicted. Pool usage is published as httpcomponents.httpclient.pool.* (pool=outbound).
+ */
+@Configuration
+public class OutboundHttpConfig {
+
+    private static final HttpHost GITHUB_API = new HttpHost("https", "api.github.com", 443);
+
+    @Value("${http.client.max-total:200}")
+    private int maxTotal;
+
+    @Value("${http.client.max-per-route:20}")
+    private int maxPerRoute;
+
+    @Value("${http.client.github-max-per-route:64}")
+    private int githubMaxPerRoute;
+
+    @Value("${http.client.io-threads:2}")
+    private int ioThreads;
+
+    @Value("${http.client.connect-timeout:5s}")
+    private Duration connectTimeout;
+
+    @Value("${http.client.read-timeout:5s}")
+    private Duration readTimeout;
+
+    @Value("${http.client.pool-wait-timeout:5s}")
+    private Duration poolWaitTimeout;
+
+    @Value("${http.client.idle-timeout:30s}")
+    private Duration idleTimeout;
+
+    @Value("${http.client.time-to-live:5m}")
+    private Duration timeToLive;
+
+    @Value("${http.client.validate-after-inactivity:2s}")
+    private Duration validateAfterInactivity;
+
+    @Bean
+    public PoolingAsyncClientConnectionManager outboundConnectionManager() {
+        PoolingAsyncClientConnectionManager cm = PoolingAsyncClientConnectionManagerBuilder.create()
+                .setTlsStrategy(new DefaultClientTlsStrategy(SSLContexts.createSystemDefault()))
+                .setDefaultTlsConfig(TlsConfig.custom()
+                        .setVersionPolicy(HttpVersionPolicy.NEGOTIATE)
+                        .build())
+                .setPoolConcurrencyPolicy(PoolConcurrencyPolicy.STRICT)
+                .setConnPoolPolicy(PoolReusePolicy.LIFO)
+                .setMaxConnTotal(maxTotal)
+                .setMaxConnPerRoute(maxPerRoute)
+                .setDefaultConnectionConfig(ConnectionConfig.custom()
+                        .setConnectTimeout(Timeout.of(connectTimeout))
+                        .setSocketTimeout(Timeout.of(readTimeout))
+                        .setTimeToLive(TimeValue.of(timeToLive))
+                        .setValidateAfterInactivity(TimeValue.of(validateAfterInactivity))
+                        .build())
+                .build();
+        raiseGithubLimit(cm, githubMaxPerRoute);
+        return cm;
+    }
+
+    /**
+     * Every GitHub call goes to one host, so it gets a bigger share than a tenant's Jira site.
+     * The route has to match the one the client plans for https://api.github.com: direct and
+     * secure (TLS-layered), otherwise the override never applies.
+     */
+    static void raiseGithubLimit(PoolingAsyncClientConnectionManager cm, int max) {
+        cm.setMaxPerRoute(new HttpRoute(GITHUB_API, null, true), max);
+    }
+
+    @Bean(destroyMethod = "close")
+    public CloseableHttpAsyncClient outboundHttpClient(PoolingAsyncClientConnectionManager outboundConnectionManager) {
+        CloseableHttpAsyncClient client = HttpAsyncClients.custom()
+                .setConnectionManager(outboundConnectionManager)
+                .setIOReactorConfig(IOReactorConfig.custom()
+                        .setIoThreadCount(ioThreads)
+                        .setSoKeepAlive(true)
+                        .setTcpNoDelay(true)
+                        .build())
+                .setDefaultRequestConfig(RequestConfig.custom()
+                        .setConnectionRequestTimeout(Timeout.of(poolWaitTimeout))
+                        .setResponseTimeout(Timeout.of(readTimeout))
+                        .build())
+                // background reaper for connections past their TTL or idle too long
+                .evictExpiredConnections()
+                .evictIdleConnections(TimeValue.of(idleTimeout))
+                .build();
+        client.start();
+        return client;
+    }
+
+    @Bean
+    public PoolingHttpClientConnectionManagerMetricsBinder outboundPoolMetrics(
+            PoolingAsyncClientConnectionManager outboundConnectionManager) {
+        return new PoolingHttpClientConnectionManagerMetricsBinder(outboundConnectionManager, "outbound", Tags.empty());
+    }
+}
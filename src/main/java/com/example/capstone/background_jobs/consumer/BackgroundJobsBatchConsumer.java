@@ -0,0 +1,83 @@
+package com.example.capstone.background_jobs.consumer;
+
+import com.example.capstone.background_jobs.backpressure.BackpressureController;
+import com.example.capstone.background_jobs.executor.JobDispatcher;
+import com.example.capstone.background_jobs.model.Event;
+import com.example.capstone.background_jobs.model.EventTypes;
+import com.example.capstone.background_jobs.retry.JobRetryRouter;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.kafka.annotation.KafkaListener;
+import org.springframework.kafka.support.Acknowledgment;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Batch listener for jfc-bg-job-topic, enabled with kafka.consumer.batch-enabled=true.
+ * Each poll is grouped by (event type, tenant) so the service can resolve the tenant once
+ * and collapse the Elasticsearch writes of a whole group. Groups of different tenants run
+ * in parallel; the batch is committed once all of them are done or parked by the {@link JobRetryRouter}.
+ */
+@Service
+@ConditionalOnProperty(name = "kafka.consumer.batch-enabled", havingValue = "true")
+public class BackgroundJobsBatchConsumer {
+
+    private static final Logger log = LoggerFactory.getLogger(BackgroundJobsBatchConsumer.class);
+
+    private final JobEventDecoder decoder;
+    private final JobDispatcher dispatcher;
+    private final JobRetryRouter retryRouter;
+
+    public BackgroundJobsBatchConsumer(JobDispatcher dispatcher, JobEventDecoder decoder, JobRetryRouter retryRouter) {
+        this.dispatcher = dispatcher;
+        this.decoder = decoder;
+        this.retryRouter = retryRouter;
+    }
+
+    @KafkaListener(id = BackpressureController.LISTENER_ID,
+            topics = "${kafka.topics.jfc-bg-job-topic}",
+            groupId = "${spring.kafka.consumer.group-id}")
+    public void onJfcJobBatch(List<ConsumerRecord<String, byte[]>> records, Acknowledgment ack) {
+        // Insertion-ordered so groups are handled in the order their first record arrived
+        Map<GroupKey, List<Event<?>>> groups = new LinkedHashMap<>();
+        for (ConsumerRecord<String, byte[]> record : records) {
+            try {
+                // A null value means ErrorHandlingDeserializer already rejected the record
+                if (record.value() == null) {
+                    throw new IllegalArgumentException("Record value could not be deserialized");
+                }
+                Event<?> event = decoder.decode(record.value(), record.headers());
+                GroupKey key = new GroupKey(event.getType(), JobEventDecoder.tenantIdOf(event));
+                groups.computeIfAbsent(key, k -> new ArrayList<>()).add(event);
+            } catch (Exception e) {
+                // parked in the dead-letter topic as-is; the router records why
+                log.warn("Undecodable record at offset {}: {}", record.offset(), e.toString());
+                retryRouter.routeUndecodable(record, e);
+            }
+        }
+
+        List<CompletableFuture<Void>> pending = new ArrayList<>();
+        for (Map.Entry<GroupKey, List<Event<?>>> group : groups.entrySet()) {
+            GroupKey key = group.getKey();
+            List<Event<?>> events = group.getValue();
+            pending.add(dispatcher.dispatchGroup(key.type(), key.tenantId(), events)
+                    .exceptionally(ex -> {
+                        retryRouter.routeGroup(events, ex);
+                        return null;
+                    }));
+        }
+
+        CompletableFuture.allOf(pending.toArray(new CompletableFuture[0])).join();
+        ack.acknowledge();
+    }
+
+    private record GroupKey(EventTypes type, Long tenantId) {
+    }
+}
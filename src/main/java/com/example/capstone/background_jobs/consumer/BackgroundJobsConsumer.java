@@ -1,84 +1,59 @@
 package com.example.capstone.background_jobs.consumer;
 
-import com.example.capstone.background_jobs.dto.CreateTicketRequestEvent;
-import com.example.capstone.background_jobs.dto.NewScanRunbookEvent;
-import com.example.capstone.background_jobs.dto.TransitionTicketRequestEvent;
-import com.example.capstone.background_jobs.dto.UpdateAlertEvent;
-import com.example.capstone.background_jobs.model.EventTypes;
-import com.example.capstone.background_jobs.service.BackgroundJobService;
-import com.fasterxml.jackson.databind.ObjectMapper;
+import com.example.capstone.background_jobs.backpressure.BackpressureController;
+import com.example.capstone.background_jobs.executor.JobDispatcher;
+import com.example.capstone.background_jobs.model.Event;
+import com.example.capstone.background_jobs.retry.JobRetryRouter;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.kafka.annotation.KafkaListener;
+import org.springframework.kafka.support.Acknowledgment;
 import org.springframework.stereotype.Service;
 
+/**
+ * One-record-at-a-time listener. Active unless kafka.consumer.batch-enabled=true,
+ * in which case {@link BackgroundJobsBatchConsumer} takes over the topic.
+ *
+ * The listener thread only decodes and hands the job to the {@link JobDispatcher}; the record
+ * is acknowledged once the job finishes. The container runs with async acks, so offsets are
+ * only committed up to the lowest record that has fully completed. Failed jobs are handed to
+ * the {@link JobRetryRouter} rather than retried in place, so a flaky downstream never stalls the partition.
+ */
 @Service
+@ConditionalOnProperty(name = "kafka.consumer.batch-enabled", havingValue = "false", matchIfMissing = true)
 public class BackgroundJobsConsumer {
 
-    private final ObjectMapper objectMapper;
-    private final BackgroundJobService jobService;
+    private final JobEventDecoder decoder;
+    private final JobDispatcher dispatcher;
+    private final JobRetryRouter retryRouter;
 
-    public BackgroundJobsConsumer(BackgroundJobService jobService) {
-        this.jobService = jobService;
-        this.objectMapper = new ObjectMapper();
+    public BackgroundJobsConsumer(JobDispatcher dispatcher, JobEventDecoder decoder, JobRetryRouter retryRouter) {
+        this.dispatcher = dispatcher;
+        this.decoder = decoder;
+        this.retryRouter = retryRouter;
     }
 
-    @KafkaListener(topics = "${kafka.topics.jfc-bg-job-topic}", groupId = "${spring.kafka.consumer.group-id}")
-    public void onJfcJobMessage(String message) {
+    @KafkaListener(id = BackpressureController.LISTENER_ID,
+            topics = "${kafka.topics.jfc-bg-job-topic}",
+            groupId = "${spring.kafka.consumer.group-id}")
+    public void onJfcJobMessage(ConsumerRecord<String, byte[]> record, Acknowledgment ack) {
+        Event<?> event;
         try {
-            // 1) Peek at "type" to see which event type we have
-            EventTypes eventType = detectEventType(message);
-            switch (eventType) {
-                case UPDATE_FINDING -> handleUpdateFinding(message);
-                case CREATE_TICKET -> handleCreateTicket(message);
-                case TRANSITION_TICKET -> handleTransitionTicket(message);
-                case NEW_SCAN -> handleNewScan(message);
-                default -> {
-                    System.out.println("[JFC] Unknown event type => " + eventType);
-                }
-            }
-        } catch (Exception e) {
-            e.printStackTrace();
-        }
-    }
-
-    private EventTypes detectEventType(String rawJson) throws Exception {
-        String typeStr = objectMapper.readTree(rawJson).path("type").asText();
-        return EventTypes.valueOf(typeStr.toUpperCase());
-    }
-
-    private void handleUpdateFinding(String message) throws Exception {
-        try {
-            UpdateAlertEvent event = objectMapper.readValue(message, UpdateAlertEvent.class);
-            jobService.handleUpdateFinding(event);
+            // 1) Resolve the type (header or streaming peek) and bind once
+            event = decoder.decode(record.value(), record.headers());
         } catch (Exception e) {
             e.printStackTrace();
+            retryRouter.routeUndecodable(record, e);
+            ack.acknowledge();
+            return;
         }
-    }
 
-    private void handleCreateTicket(String message) throws Exception {
-        try {
-            CreateTicketRequestEvent event = objectMapper.readValue(message, CreateTicketRequestEvent.class);
-            jobService.handleCreateTicket(event);
-        } catch (Exception e) {
-            e.printStackTrace();
-        }
-    }
-
-    private void handleTransitionTicket(String message) throws Exception {
-        try {
-            TransitionTicketRequestEvent event = objectMapper.readValue(message, TransitionTicketRequestEvent.class);
-            jobService.handleTransitionTicket(event);
-        } catch (Exception e) {
-            e.printStackTrace();
-        }
-    }
-
-    private void handleNewScan(String message) throws Exception {
-        try{
-            NewScanRunbookEvent event = objectMapper.readValue(message, NewScanRunbookEvent.class);
-            jobService.handleNewScan(event);
-        } catch (Exception e) {
-            e.printStackTrace();
-        }
+        // 2) Run it off the listener thread; commit once it is done or parked in a retry/dead-letter topic
+        dispatcher.dispatch(event).whenComplete((r, ex) -> {
+            if (ex != null) {
+                retryRouter.route(event, ex);
+            }
+            ack.acknowledge();
+        });
     }
 }
-
@@ -0,0 +1,111 @@
+package com.example.capstone.background_jobs.consumer;
+
+import com.example.capstone.background_jobs.dto.CreateTicketRequestEvent;
+import com.example.capstone.background_jobs.dto.NewScanRunbookEvent;
+import com.example.capstone.background_jobs.dto.TransitionTicketRequestEvent;
+import com.example.capstone.background_jobs.dto.UpdateAlertEvent;
+import com.example.capstone.background_jobs.model.Event;
+import com.example.capstone.background_jobs.model.EventTypes;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import org.apache.kafka.common.header.Header;
+import org.apache.kafka.common.header.Headers;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.EnumMap;
+import java.util.Map;
+
+/**
+ * Turns raw jfc-bg-job-topic messages into typed {@link Event}s.
+ * Shared by the single-record and the batch listener.
+ *
+ * The event type comes from the {@value #EVENT_TYPE_HEADER} record header when the producer
+ * sets it; otherwise a streaming parser peeks at the top-level "type" field and stops there.
+ * Either way the payload bytes are bound exactly once, straight into the matching class.
+ */
+@Component
+public class JobEventDecoder {
+
+    public static final String EVENT_TYPE_HEADER = "eventType";
+
+    private final ObjectMapper objectMapper;
+    private final Map<EventTypes, ObjectReader> readers = new EnumMap<>(EventTypes.class);
+
+    public JobEventDecoder(ObjectMapper objectMapper) {
+        this.objectMapper = objectMapper;
+        readers.put(EventTypes.UPDATE_FINDING, objectMapper.readerFor(UpdateAlertEvent.class));
+        readers.put(EventTypes.CREATE_TICKET, objectMapper.readerFor(CreateTicketRequestEvent.class));
+        readers.put(EventTypes.TRANSITION_TICKET, objectMapper.readerFor(TransitionTicketRequestEvent.class));
+        readers.put(EventTypes.NEW_SCAN, objectMapper.readerFor(NewScanRunbookEvent.class));
+    }
+
+    public Event<?> decode(byte[] value) throws IOException {
+        return decode(value, null);
+    }
+
+    public Event<?> decode(byte[] value, Headers headers) throws IOException {
+        EventTypes eventType = typeFromHeader(headers);
+        if (eventType == null) {
+            eventType = detectEventType(value);
+        }
+        ObjectReader reader = readers.get(eventType);
+        if (reader == null) {
+            throw new IllegalArgumentException("Unsupported event type => " + eventType);
+        }
+        return reader.readValue(value);
+    }
+
+    private EventTypes typeFromHeader(Headers headers) {
+        if (headers == null) {
+            return null;
+        }
+        Header header = headers.lastHeader(EVENT_TYPE_HEADER);
+        if (header == null || header.value() == null) {
+            return null;
+        }
+        return EventTypes.valueOf(new String(header.value(), StandardCharsets.UTF_8).trim().toUpperCase());
+    }
+
+    /**
+     * Reads top-level tokens until "type" is found, skipping nested objects without building them.
+     */
+    public EventTypes detectEventType(byte[] value) throws IOException {
+        try (JsonParser parser = objectMapper.getFactory().createParser(value)) {
+            if (parser.nextToken() != JsonToken.START_OBJECT) {
+                throw new IllegalArgumentException("Job message is not a JSON object");
+            }
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String field = parser.currentName();
+                JsonToken token = parser.nextToken();
+                if ("type".equals(field) && token == JsonToken.VALUE_STRING) {
+                    return EventTypes.valueOf(parser.getText().toUpperCase());
+                }
+                parser.skipChildren();
+            }
+        }
+        throw new IllegalArgumentException("Job message has no \"type\" field");
+    }
+
+    /**
+     * Tenant the event belongs to, or null if the payload does not carry one.
+     */
+    public static Long tenantIdOf(Event<?> event) {
+        if (event instanceof UpdateAlertEvent e && e.getPayload() != null && e.getPayload().getTenantId() != null) {
+            return Long.valueOf(e.getPayload().getTenantId());
+        }
+        if (event instanceof CreateTicketRequestEvent e && e.getPayload() != null) {
+            return e.getPayload().getTenantId();
+        }
+        if (event instanceof TransitionTicketRequestEvent e && e.getPayload() != null) {
+            return e.getPayload().getTenantId();
+        }
+        if (event instanceof NewScanRunbookEvent e && e.getPayload() != null) {
+            return e.getPayload().getTenantId();
+        }
+        return null;
+    }
+}
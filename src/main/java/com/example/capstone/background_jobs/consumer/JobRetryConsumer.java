@@ -0,0 +1,59 @@
+package com.example.capstone.background_jobs.consumer;
+
+import com.example.capstone.background_jobs.executor.JobDispatcher;
+import com.example.capstone.background_jobs.model.Event;
+import com.example.capstone.background_jobs.producer.AcknowledgementProducer;
+import com.example.capstone.background_jobs.retry.JobRetryRouter;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.kafka.annotation.KafkaListener;
+import org.springframework.stereotype.Service;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Second chance for jobs that failed transiently on the main topic.
+ *
+ * Unlike the main listener this one waits for the job and lets failures propagate, so the
+ * retry-topic configuration in KafkaConfig can move the record through the delayed tiers and
+ * finally to the dead-letter topic, where {@link #onDeadLetter} acks the job as FAILURE.
+ */
+@Service
+public class JobRetryConsumer {
+
+    private static final Logger log = LoggerFactory.getLogger(JobRetryConsumer.class);
+
+    private final JobEventDecoder decoder;
+    private final JobDispatcher dispatcher;
+    private final AcknowledgementProducer ackProducer;
+
+    public JobRetryConsumer(JobEventDecoder decoder, JobDispatcher dispatcher, AcknowledgementProducer ackProducer) {
+        this.decoder = decoder;
+        this.dispatcher = dispatcher;
+        this.ackProducer = ackProducer;
+    }
+
+    @KafkaListener(id = "jobRetryListener",
+            topics = "${kafka.topics.jfc-bg-job-retry-topic}",
+            groupId = "${spring.kafka.consumer.group-id}",
+            containerFactory = "retryKafkaListenerContainerFactory")
+    public void onRetry(ConsumerRecord<String, byte[]> record) throws Exception {
+        Event<?> event = decoder.decode(record.value(), record.headers());
+        log.debug("Retrying job {} from {}", event.getEventId(), record.topic());
+        dispatcher.dispatch(event).join();
+    }
+
+    public void onDeadLetter(ConsumerRecord<String, byte[]> record) {
+        var reason = record.headers().lastHeader(JobRetryRouter.EXCEPTION_HEADER);
+        log.warn("Job dead-lettered from {}: {}", record.topic(),
+                reason == null ? "no reason recorded" : new String(reason.value(), StandardCharsets.UTF_8));
+        try {
+            Event<?> event = decoder.decode(record.value(), record.headers());
+            ackProducer.sendUpdateAck(event.getEventId(), false);
+        } catch (Exception e) {
+            // Undecodable payload: there is no job id to acknowledge
+            log.warn("Dead-lettered record at offset {} has no decodable job", record.offset(), e);
+        }
+    }
+}
@@ -0,0 +1,159 @@
+package com.example.capstone.background_jobs.executor;
+
+import com.example.capstone.background_jobs.consumer.JobEventDecoder;
+import com.example.capstone.background_jobs.dto.CreateTicketRequestEvent;
+import com.example.capstone.background_jobs.dto.NewScanRunbookEvent;
+import com.example.capstone.background_jobs.dto.TransitionTicketRequestEvent;
+import com.example.capstone.background_jobs.dto.UpdateAlertEvent;
+import com.example.capstone.background_jobs.idempotency.EventIdStore;
+import com.example.capstone.background_jobs.idempotency.EventIdStore.Claim;
+import com.example.capstone.background_jobs.model.Event;
+import com.example.capstone.background_jobs.model.EventTypes;
+import com.example.capstone.background_jobs.model.UpdateEvent;
+import com.example.capstone.background_jobs.producer.AcknowledgementProducer;
+import com.example.capstone.background_jobs.service.BackgroundJobService;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Sits between the Kafka listeners and {@link BackgroundJobService}: picks the lane and the
+ * ordering key for a job and runs it there. A job refused by a full lane fails with
+ * RejectedExecutionException, which the listeners hand to the retry topics.
+ *
+ * jobs.execution.ordering=tenant keeps every job of a tenant in order (default);
+ * =alert only orders UPDATE_FINDING jobs per alert, so updates to different alerts
+ * of the same tenant may overlap.
+ *
+ * Every event claims its eventId in the {@link EventIdStore} first. An event that was already
+ * acked SUCCESS (a redelivery after a rebalance or restart) is acked SUCCESS again without
+ * running; one that another delivery is still running is dropped, since that delivery acks it.
+ *
+ * UPDATE_FINDING jobs for the same alert are coalesced first (see {@link UpdateCoalescer}):
+ * only the last desired state reaches GitHub/ES, the superseded jobs share its ack.
+ */
+@Service
+public class JobDispatcher {
+
+    private final JobLanes lanes;
+    private final BackgroundJobService jobService;
+    private final EventIdStore eventIdStore;
+    private final AcknowledgementProducer ackProducer;
+    private final UpdateCoalescer coalescer;
+    private final boolean orderPerAlert;
+
+    public JobDispatcher(JobLanes lanes,
+                         BackgroundJobService jobService,
+                         EventIdStore eventIdStore,
+                         AcknowledgementProducer ackProducer,
+                         UpdateCoalescer coalescer,
+                         @Value("${jobs.execution.ordering:tenant}") String ordering) {
+        this.lanes = lanes;
+        this.jobService = jobService;
+        this.eventIdStore = eventIdStore;
+        this.ackProducer = ackProducer;
+        this.coalescer = coalescer;
+        this.orderPerAlert = "alert".equalsIgnoreCase(ordering);
+    }
+
+    public CompletableFuture<Void> dispatch(Event<?> event) {
+        if (!claim(event)) {
+            return CompletableFuture.completedFuture(null);
+        }
+        CompletableFuture<Void> done;
+        if (event instanceof UpdateAlertEvent update && coalescer.isEnabled()) {
+            done = coalescer.submit(update, (latest, superseded) -> lanes.laneFor(EventTypes.UPDATE_FINDING)
+                    .submit(orderingKey(latest), () -> jobService.handleUpdateFinding(latest, superseded)));
+        } else {
+            done = lanes.laneFor(event.getType()).submit(orderingKey(event), () -> run(event));
+        }
+        return done.whenComplete((v, ex) -> eventIdStore.release(event.getEventId()));
+    }
+
+    /**
+     * Runs a group of same-type, same-tenant events through the service's batch entry point.
+     */
+    @SuppressWarnings("unchecked")
+    public CompletableFuture<Void> dispatchGroup(EventTypes type, Long tenantId, List<Event<?>> group) {
+        List<Event<?>> events = group.stream()
+                .filter(this::claim)
+                .toList();
+        if (events.isEmpty()) {
+            return CompletableFuture.completedFuture(null);
+        }
+        return lanes.laneFor(type).submit("tenant:" + tenantId, () -> {
+            switch (type) {
+                case UPDATE_FINDING -> coalesceAndUpdate(tenantId, (List<UpdateAlertEvent>) (List<?>) events);
+                case CREATE_TICKET -> jobService.handleCreateTicketBatch(
+                        tenantId, (List<CreateTicketRequestEvent>) (List<?>) events);
+                case TRANSITION_TICKET -> jobService.handleTransitionTicketBatch(
+                        tenantId, (List<TransitionTicketRequestEvent>) (List<?>) events);
+                case NEW_SCAN -> jobService.handleNewScanBatch(
+                        tenantId, (List<NewScanRunbookEvent>) (List<?>) events);
+                default -> System.out.println("[JFC] Unknown event type => " + type);
+            }
+        }).whenComplete((v, ex) -> events.forEach(e -> eventIdStore.release(e.getEventId())));
+    }
+
+    /**
+     * True if this delivery should run the event. A redelivery of a job that already succeeded
+     * gets its SUCCESS ack again, since JFC is still waiting for one.
+     */
+    private boolean claim(Event<?> event) {
+        Claim claim = eventIdStore.tryClaim(event.getEventId());
+        if (claim == Claim.DONE) {
+            ackProducer.sendUpdateAck(event.getEventId(), true);
+        }
+        return claim == Claim.CLAIMED;
+    }
+
+    /**
+     * A poll is its own coalescing window: per alert only the last update is applied.
+     */
+    private void coalesceAndUpdate(Long tenantId, List<UpdateAlertEvent> events) {
+        if (!coalescer.isEnabled()) {
+            jobService.handleUpdateFindingBatch(tenantId, events);
+            return;
+        }
+        Map<String, List<UpdateAlertEvent>> byAlert = new LinkedHashMap<>();
+        for (UpdateAlertEvent event : events) {
+            byAlert.computeIfAbsent(UpdateCoalescer.keyOf(event), k -> new ArrayList<>()).add(event);
+        }
+        List<UpdateAlertEvent> latest = new ArrayList<>(byAlert.size());
+        Map<UpdateAlertEvent, List<UpdateAlertEvent>> superseded = new IdentityHashMap<>();
+        for (List<UpdateAlertEvent> updates : byAlert.values()) {
+            UpdateAlertEvent last = updates.get(updates.size() - 1);
+            latest.add(last);
+            superseded.put(last, updates.subList(0, updates.size() - 1));
+        }
+        jobService.handleUpdateFindingBatch(tenantId, latest, superseded);
+    }
+
+    private void run(Event<?> event) {
+        if (event instanceof UpdateAlertEvent e) {
+            jobService.handleUpdateFinding(e);
+        } else if (event instanceof CreateTicketRequestEvent e) {
+            jobService.handleCreateTicket(e);
+        } else if (event instanceof TransitionTicketRequestEvent e) {
+            jobService.handleTransitionTicket(e);
+        } else if (event instanceof NewScanRunbookEvent e) {
+            jobService.handleNewScan(e);
+        } else {
+            System.out.println("[JFC] Unknown event type => " + event.getType());
+        }
+    }
+
+    private String orderingKey(Event<?> event) {
+        if (orderPerAlert && event instanceof UpdateAlertEvent e && e.getPayload() != null) {
+            UpdateEvent p = e.getPayload();
+            return "alert:" + p.getTenantId() + ":" + p.getToolType() + ":" + p.getAlertNumber();
+        }
+        return "tenant:" + JobEventDecoder.tenantIdOf(event);
+    }
+}
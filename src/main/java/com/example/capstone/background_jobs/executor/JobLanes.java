@@ -0,0 +1,68 @@
+package com.example.capstone.background_jobs.executor;
+
+import com.example.capstone.background_jobs.model.EventTypes;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+
+import java.util.Collection;
+import java.util.Map;
+
+/**
+ * One {@link KeyedJobExecutor} per job type, so an expensive NEW_SCAN or a long
+ * TRANSITION_TICKET loop can only exhaust its own lane and never the cheap UPDATE_FINDING jobs.
+ * Each lane publishes its own gauges/counters tagged with lane=&lt;event type&gt;.
+ */
+public class JobLanes implements MeterBinder, AutoCloseable {
+
+    private final Map<EventTypes, KeyedJobExecutor> lanes;
+
+    public JobLanes(Map<EventTypes, KeyedJobExecutor> lanes) {
+        this.lanes = lanes;
+    }
+
+    public KeyedJobExecutor laneFor(EventTypes type) {
+        KeyedJobExecutor lane = lanes.get(type);
+        if (lane == null) {
+            throw new IllegalArgumentException("No job lane configured for " + type);
+        }
+        return lane;
+    }
+
+    public Collection<KeyedJobExecutor> all() {
+        return lanes.values();
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        for (KeyedJobExecutor lane : lanes.values()) {
+            String tag = lane.getName();
+            Gauge.builder("bgjobs.lane.in_flight", lane, KeyedJobExecutor::getInFlight)
+                    .tag("lane", tag).register(registry);
+            Gauge.builder("bgjobs.lane.running", lane, KeyedJobExecutor::getRunning)
+                    .tag("lane", tag).register(registry);
+            Gauge.builder("bgjobs.lane.queued", lane, KeyedJobExecutor::getQueued)
+                    .tag("lane", tag).register(registry);
+            Gauge.builder("bgjobs.lane.saturation", lane, KeyedJobExecutor::getSaturation)
+                    .tag("lane", tag).register(registry);
+            Gauge.builder("bgjobs.lane.capacity", lane, KeyedJobExecutor::getCapacity)
+                    .tag("lane", tag).register(registry);
+            FunctionCounter.builder("bgjobs.lane.completed", lane, KeyedJobExecutor::getCompleted)
+                    .tag("lane", tag).register(registry);
+            FunctionCounter.builder("bgjobs.lane.failed", lane, KeyedJobExecutor::getFailed)
+                    .tag("lane", tag).register(registry);
+            FunctionCounter.builder("bgjobs.lane.rejected", lane, KeyedJobExecutor::getRejected)
+                    .tag("lane", tag).register(registry);
+            FunctionCounter.builder("bgjobs.lane.timeouts", lane, KeyedJobExecutor::getTimedOut)
+                    .tag("lane", tag).register(registry);
+        }
+    }
+
+    @Override
+    public void close() throws InterruptedException {
+        for (KeyedJobExecutor lane : lanes.values()) {
+            lane.close();
+        }
+    }
+}
@@ -0,0 +1,218 @@
+package com.example.capstone.background_jobs.executor;
+
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Runs jobs on a bounded worker pool while keeping jobs that share an ordering key
+ * (tenant, or tenant+alert) strictly sequential. Jobs with different keys run in parallel,
+ * so one slow tenant only holds up its own queue.
+ *
+ * Each instance is one bulkhead lane: at most maxConcurrency jobs run at once, at most
+ * queueDepth more wait behind them (anything beyond that is rejected straight away), and a
+ * job running longer than the timeout has its worker interrupted.
+ *
+ * A job's future only completes once the job has actually stopped, so a timed-out job is never
+ * retried while it is still running.
+ */
+public class KeyedJobExecutor implements AutoCloseable {
+
+    // One timer thread for every lane; cancelled timeouts are dropped from its queue right away
+    private static final ScheduledThreadPoolExecutor TIMEOUTS = createTimeoutScheduler();
+
+    private final String name;
+    private final int maxConcurrency;
+    private final int capacity;
+    private final Duration timeout;
+    private final ExecutorService workers;
+
+    // Last submitted job per key; the next job for that key chains onto it
+    private final ConcurrentHashMap<String, CompletableFuture<Void>> tails = new ConcurrentHashMap<>();
+
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private final AtomicInteger running = new AtomicInteger();
+    private final AtomicLong completed = new AtomicLong();
+    private final AtomicLong failed = new AtomicLong();
+    private final AtomicLong rejected = new AtomicLong();
+    private final AtomicLong timedOut = new AtomicLong();
+
+    public KeyedJobExecutor(String name, int maxConcurrency, int queueDepth, Duration timeout) {
+        this.name = name;
+        this.maxConcurrency = maxConcurrency;
+        this.capacity = maxConcurrency + queueDepth;
+        this.timeout = timeout;
+        this.workers = Executors.newFixedThreadPool(maxConcurrency,
+                Thread.ofPlatform().name(name + "-", 0).factory());
+    }
+
+    /**
+     * Schedules the job after every earlier job with the same key. The returned future
+     * completes when the job has finished: normally if it returned (even past the timeout),
+     * with a {@link TimeoutException} if it failed after being interrupted for running too
+     * long, with its own exception otherwise. It fails immediately with
+     * {@link RejectedExecutionException} when the lane is full.
+     */
+    public CompletableFuture<Void> submit(String key, Runnable job) {
+        if (inFlight.incrementAndGet() > capacity) {
+            inFlight.decrementAndGet();
+            rejected.incrementAndGet();
+            return CompletableFuture.failedFuture(
+                    new RejectedExecutionException("Lane " + name + " is full (" + capacity + " jobs)"));
+        }
+
+        // finished gates the next job of this key; result is what the caller sees
+        CompletableFuture<Void> finished = new CompletableFuture<>();
+        CompletableFuture<Void> result = new CompletableFuture<>();
+
+        Runnable run = () -> {
+            AtomicReference<Thread> worker = new AtomicReference<>(Thread.currentThread());
+            AtomicBoolean expired = new AtomicBoolean();
+            running.incrementAndGet();
+            ScheduledFuture<?> timeoutTask = TIMEOUTS.schedule(() -> {
+                synchronized (worker) {
+                    Thread t = worker.get();
+                    if (t != null && expired.compareAndSet(false, true)) {
+                        timedOut.incrementAndGet();
+                        t.interrupt();
+                    }
+                }
+            }, timeout.toMillis(), TimeUnit.MILLISECONDS);
+
+            Throwable failure = null;
+            try {
+                job.run();
+            } catch (Throwable t) {
+                failure = t;
+            }
+            timeoutTask.cancel(false);
+            synchronized (worker) {
+                worker.set(null);
+            }
+            Thread.interrupted(); // don't leak a late timeout interrupt into callbacks or the next job
+
+            try {
+                if (failure == null) {
+                    completed.incrementAndGet();
+                    result.complete(null);
+                } else {
+                    failed.incrementAndGet();
+                    result.completeExceptionally(expired.get() ? timeoutFailure(failure) : failure);
+                }
+            } finally {
+                running.decrementAndGet();
+                inFlight.decrementAndGet();
+                tails.remove(key, finished);
+                finished.complete(null);
+            }
+        };
+
+        CompletableFuture<Void> previous = tails.put(key, finished);
+        if (previous == null) {
+            start(key, run, finished, result);
+        } else {
+            previous.whenComplete((r, ex) -> start(key, run, finished, result));
+        }
+        return result;
+    }
+
+    /**
+     * Hands the job to a worker. If the pool refuses it (shutting down), the job fails with the
+     * rejection and the next job of its key is released, so the key's queue never stalls.
+     */
+    private void start(String key, Runnable run, CompletableFuture<Void> finished, CompletableFuture<Void> result) {
+        try {
+            workers.execute(run);
+        } catch (RejectedExecutionException e) {
+            rejected.incrementAndGet();
+            inFlight.decrementAndGet();
+            result.completeExceptionally(e);
+            tails.remove(key, finished);
+            finished.complete(null);
+        }
+    }
+
+    private TimeoutException timeoutFailure(Throwable cause) {
+        TimeoutException e = new TimeoutException("Job in lane " + name + " exceeded " + timeout.toMillis() + " ms");
+        e.initCause(cause);
+        return e;
+    }
+
+    private static ScheduledThreadPoolExecutor createTimeoutScheduler() {
+        ScheduledThreadPoolExecutor scheduler = new ScheduledThreadPoolExecutor(1,
+                Thread.ofPlatform().name("bg-job-timeouts").daemon(true).factory());
+        scheduler.setRemoveOnCancelPolicy(true);
+        return scheduler;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public int getMaxConcurrency() {
+        return maxConcurrency;
+    }
+
+    /** Running plus queued jobs the lane accepts before rejecting. */
+    public int getCapacity() {
+        return capacity;
+    }
+
+    /** Jobs submitted but not yet finished, including those waiting on their key. */
+    public int getInFlight() {
+        return inFlight.get();
+    }
+
+    public int getRunning() {
+        return running.get();
+    }
+
+    public int getQueued() {
+        return Math.max(0, inFlight.get() - running.get());
+    }
+
+    /** In-flight jobs as a fraction of capacity, 0.0 - 1.0. */
+    public double getSaturation() {
+        return (double) inFlight.get() / capacity;
+    }
+
+    /** Ordering keys that currently have work queued or running. */
+    public int getActiveKeys() {
+        return tails.size();
+    }
+
+    public long getCompleted() {
+        return completed.get();
+    }
+
+    public long getFailed() {
+        return failed.get();
+    }
+
+    public long getRejected() {
+        return rejected.get();
+    }
+
+    public long getTimedOut() {
+        return timedOut.get();
+    }
+
+    @Override
+    public void close() throws InterruptedException {
+        workers.shutdown();
+        if (!workers.awaitTermination(30, TimeUnit.SECONDS)) {
+            workers.shutdownNow();
+        }
+    }
+}
@@ -0,0 +1,134 @@
+package com.example.capstone.background_jobs.executor;
+
+import com.example.capstone.background_jobs.model.Severity;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.PriorityBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Runs runbook-generated work (update_finding / create_ticket per finding) by priority
+ * instead of in the order the findings came back from ES.
+ *
+ * Every job gets a virtual deadline = submit time + slack(severity) + slack(tool type) and
+ * the workers always take the earliest deadline. A CRITICAL secret-scanning finding
+ * (no slack) therefore jumps ahead of queued INFORMATIONAL ones, but only by the difference
+ * in slack: an old low-severity job eventually has an earlier deadline than anything new,
+ * so nothing starves.
+ */
+public class PriorityJobScheduler implements MeterBinder, AutoCloseable {
+
+    private final String name;
+    private final Map<Severity, Duration> severitySlack;
+    private final Map<String, Duration> toolSlack;
+    private final ThreadPoolExecutor pool;
+    private final AtomicLong sequence = new AtomicLong();
+    private final AtomicLong completed = new AtomicLong();
+    private final AtomicLong failed = new AtomicLong();
+
+    public PriorityJobScheduler(String name, int concurrency,
+                                Map<Severity, Duration> severitySlack,
+                                Map<String, Duration> toolSlack) {
+        this.name = name;
+        this.severitySlack = severitySlack;
+        this.toolSlack = toolSlack;
+        this.pool = new ThreadPoolExecutor(concurrency, concurrency, 0L, TimeUnit.MILLISECONDS,
+                new PriorityBlockingQueue<>(), Thread.ofPlatform().name(name + "-", 0).factory());
+    }
+
+    /**
+     * Queues the job; the future completes when it ran (exceptionally if it threw).
+     * Cancelling the future drops the job if it hasn't started yet.
+     */
+    public CompletableFuture<Void> submit(Severity severity, String toolType, Runnable job) {
+        long slackNanos = slackFor(severity, toolType).toNanos();
+        PrioritizedJob task = new PrioritizedJob(System.nanoTime() + slackNanos, sequence.getAndIncrement(), job);
+        pool.execute(task);
+        return task.result;
+    }
+
+    private Duration slackFor(Severity severity, String toolType) {
+        Duration slack = severitySlack.getOrDefault(severity == null ? Severity.MEDIUM : severity, Duration.ZERO);
+        if (toolType != null) {
+            slack = slack.plus(toolSlack.getOrDefault(toolType.toUpperCase(), Duration.ZERO));
+        }
+        return slack;
+    }
+
+    public int getQueued() {
+        return pool.getQueue().size();
+    }
+
+    public int getRunning() {
+        return pool.getActiveCount();
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        Gauge.builder("bgjobs.priority.queued", this, PriorityJobScheduler::getQueued)
+                .tag("scheduler", name).register(registry);
+        Gauge.builder("bgjobs.priority.running", this, PriorityJobScheduler::getRunning)
+                .tag("scheduler", name).register(registry);
+        FunctionCounter.builder("bgjobs.priority.completed", completed, AtomicLong::get)
+                .tag("scheduler", name).register(registry);
+        FunctionCounter.builder("bgjobs.priority.failed", failed, AtomicLong::get)
+                .tag("scheduler", name).register(registry);
+    }
+
+    @Override
+    public void close() throws InterruptedException {
+        pool.shutdownNow();
+        pool.awaitTermination(10, TimeUnit.SECONDS);
+    }
+
+    private final class PrioritizedJob implements Runnable, Comparable<PrioritizedJob> {
+
+        private final long deadline;
+        private final long seq;
+        private final Runnable job;
+        private final CompletableFuture<Void> result = new CompletableFuture<>();
+
+        private PrioritizedJob(long deadline, long seq, Runnable job) {
+            this.deadline = deadline;
+            this.seq = seq;
+            this.job = job;
+        }
+
+        @Override
+        public void run() {
+            if (result.isDone()) {
+                return; // cancelled while queued
+            }
+            try {
+                job.run();
+                result.complete(null);
+                completed.incrementAndGet();
+            } catch (Throwable t) {
+                result.completeExceptionally(t);
+                failed.incrementAndGet();
+            }
+        }
+
+        @Override
+        public int compareTo(PrioritizedJob other) {
+            // nanoTime values are only comparable by difference
+            long diff = deadline - other.deadline;
+            if (diff != 0) {
+                return diff < 0 ? -1 : 1;
+            }
+            return Long.compare(seq, other.seq);
+        }
+    }
+}
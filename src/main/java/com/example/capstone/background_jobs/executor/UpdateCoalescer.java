@@ -0,0 +1,123 @@
+package com.example.capstone.background_jobs.executor;
+
+import com.example.capstone.background_jobs.dto.UpdateAlertEvent;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.BiFunction;
+
+/**
+ * Holds UPDATE_FINDING jobs for a short window per alert (tenant, toolType, alertNumber).
+ * When the window closes only the last one is applied; the earlier ones ride along as
+ * "superseded" so they get the same ack, and every caller's future completes with that
+ * single write's outcome.
+ *
+ * jobs.coalescing.window=0 turns it off.
+ */
+@Component
+public class UpdateCoalescer implements MeterBinder, AutoCloseable {
+
+    private final Duration window;
+    private final Map<String, Pending> pending = new ConcurrentHashMap<>();
+    private final ScheduledExecutorService timer = Executors.newSingleThreadScheduledExecutor(
+            Thread.ofPlatform().name("update-coalescer").daemon().factory());
+    private final AtomicLong superseded = new AtomicLong();
+
+    public UpdateCoalescer(@Value("${jobs.coalescing.window:500ms}") Duration window) {
+        this.window = window;
+    }
+
+    public boolean isEnabled() {
+        return !window.isZero() && !window.isNegative();
+    }
+
+    public static String keyOf(UpdateAlertEvent event) {
+        var p = event.getPayload();
+        return p.getTenantId() + ":" + p.getToolType().toUpperCase() + ":" + p.getAlertNumber();
+    }
+
+    /**
+     * Adds the job to its alert's window. {@code apply} is called once per window with the
+     * last job and the ones it superseded (oldest first).
+     */
+    public CompletableFuture<Void> submit(UpdateAlertEvent event,
+                                          BiFunction<UpdateAlertEvent, List<UpdateAlertEvent>, CompletableFuture<Void>> apply) {
+        CompletableFuture<Void> result = new CompletableFuture<>();
+        String key = keyOf(event);
+        pending.compute(key, (k, p) -> {
+            if (p == null) {
+                p = new Pending();
+                timer.schedule(() -> flush(k, apply), window.toMillis(), TimeUnit.MILLISECONDS);
+            }
+            p.add(event, result);
+            return p;
+        });
+        return result;
+    }
+
+    private void flush(String key, BiFunction<UpdateAlertEvent, List<UpdateAlertEvent>, CompletableFuture<Void>> apply) {
+        Pending p = pending.remove(key);
+        if (p == null) {
+            return;
+        }
+        UpdateAlertEvent latest = p.events.get(p.events.size() - 1);
+        List<UpdateAlertEvent> older = p.events.subList(0, p.events.size() - 1);
+        if (!older.isEmpty()) {
+            superseded.addAndGet(older.size());
+        }
+
+        CompletableFuture<Void> applied;
+        try {
+            applied = apply.apply(latest, older);
+        } catch (Exception e) {
+            applied = CompletableFuture.failedFuture(e);
+        }
+        applied.whenComplete((v, ex) -> p.results.forEach(r -> {
+            if (ex == null) {
+                r.complete(null);
+            } else {
+                r.completeExceptionally(ex);
+            }
+        }));
+    }
+
+    public int getPending() {
+        return pending.size();
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        Gauge.builder("bgjobs.coalescing.pending_alerts", this, UpdateCoalescer::getPending).register(registry);
+        FunctionCounter.builder("bgjobs.coalescing.superseded", superseded, AtomicLong::get).register(registry);
+    }
+
+    @Override
+    public void close() {
+        timer.shutdown();
+    }
+
+    private static final class Pending {
+
+        private final List<UpdateAlertEvent> events = new ArrayList<>(2);
+        private final List<CompletableFuture<Void>> results = new ArrayList<>(2);
+
+        private void add(UpdateAlertEvent event, CompletableFuture<Void> result) {
+            events.add(event);
+            results.add(result);
+        }
+    }
+}
@@ -0,0 +1,55 @@
+package com.example.capstone.background_jobs.github;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Last known ETag and state fields (state, dismissed_reason, resolution) per alert URL, from
+ * our own PATCH / GET responses. Lets GithubApiClient confirm an alert's state with a
+ * conditional GET, and a 304 doesn't count against the rate limit.
+ * Least recently used entries are dropped past github.etag-cache.max-entries.
+ */
+@Component
+public class AlertStateCache {
+
+    public record CachedAlert(String etag, Map<String, String> fields) {
+
+        /**
+         * True if every field of the PATCH body already has that value.
+         */
+        public boolean matches(Map<String, Object> desired) {
+            for (Map.Entry<String, Object> e : desired.entrySet()) {
+                if (!String.valueOf(e.getValue()).equalsIgnoreCase(fields.get(e.getKey()))) {
+                    return false;
+                }
+            }
+            return true;
+        }
+    }
+
+    private final Map<String, CachedAlert> entries;
+
+    public AlertStateCache(@Value("${github.etag-cache.max-entries:100000}") int maxEntries) {
+        this.entries = new LinkedHashMap<>(1024, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, CachedAlert> eldest) {
+                return size() > maxEntries;
+            }
+        };
+    }
+
+    public synchronized CachedAlert get(String alertUrl) {
+        return entries.get(alertUrl);
+    }
+
+    public synchronized void put(String alertUrl, CachedAlert alert) {
+        entries.put(alertUrl, alert);
+    }
+
+    public synchronized void invalidate(String alertUrl) {
+        entries.remove(alertUrl);
+    }
+}
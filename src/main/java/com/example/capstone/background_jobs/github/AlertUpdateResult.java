@@ -0,0 +1,9 @@
+package com.example.capstone.background_jobs.github;
+
+public enum AlertUpdateResult {
+
+    UPDATED,
+    // GitHub already had the requested state, nothing was sent
+    UNCHANGED,
+    FAILED
+}
@@ -1,175 +1,306 @@
 package com.example.capstone.background_jobs.github;
 
-import org.springframework.http.*;
+import com.example.capstone.background_jobs.http.OutboundHttp;
+import com.example.capstone.background_jobs.model.TenantEntity;
+import com.example.capstone.background_jobs.retry.TransientJobException;
+import com.example.capstone.background_jobs.tenant.TenantContext;
+import com.example.capstone.background_jobs.tenant.TenantContextCache;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.apache.hc.client5.http.async.methods.SimpleHttpRequest;
+import org.apache.hc.client5.http.async.methods.SimpleHttpResponse;
+import org.apache.hc.client5.http.async.methods.SimpleRequestBuilder;
+import org.apache.hc.core5.http.ContentType;
+import org.apache.hc.core5.http.Header;
+import org.apache.hc.core5.http.HttpStatus;
 import org.springframework.stereotype.Service;
-import org.springframework.web.client.HttpClientErrorException;
-import org.springframework.web.client.RestTemplate;
 
+import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
 
+/**
+ * GitHub alert updates. The *Async methods are non-blocking (shared async HTTP client, rate
+ * limiter permits handed out without parking a thread); the plain ones wait for them.
+ *
+ * The Authorization header comes prebuilt from the tenant's cached {@link TenantContext}; a 401
+ * drops that entry so a rotated token is picked up on the next job.
+ */
 @Service
 public class GithubApiClient {
 
-    private final RestTemplate restTemplate;
+    // Rate-limited responses are retried in place (after the limiter's pause) this many times
+    private static final int MAX_RATE_LIMITED_ATTEMPTS = 3;
 
-    public GithubApiClient(RestTemplate restTemplate) {
-        this.restTemplate = restTemplate;
+    // Alert fields our PATCH bodies set, kept in the AlertStateCache
+    private static final List<String> STATE_FIELDS = List.of("state", "dismissed_reason", "resolution");
+
+    private final OutboundHttp http;
+    private final GithubRateLimiter rateLimiter;
+    private final AlertStateCache alertStateCache;
+    private final ObjectMapper objectMapper;
+    private final TenantContextCache tenants;
+
+    public GithubApiClient(OutboundHttp http, GithubRateLimiter rateLimiter,
+                           AlertStateCache alertStateCache, ObjectMapper objectMapper,
+                           TenantContextCache tenants) {
+        this.http = http;
+        this.rateLimiter = rateLimiter;
+        this.alertStateCache = alertStateCache;
+        this.objectMapper = objectMapper;
+        this.tenants = tenants;
     }
 
-    public boolean updateCodeScanningAlertState(
-            String personalAccessToken, // dynamically passed
-            String owner,
-            String repo,
+    public AlertUpdateResult updateCodeScanningAlertState(
+            TenantEntity tenant,
             String alertNumber,
             String newState,
             String dismissReason
     ) {
-        try {
-            String url = String.format(
-                    "https://api.github.com/repos/%s/%s/code-scanning/alerts/%s",
-                    owner, repo, alertNumber
-            );
+        return OutboundHttp.await(updateCodeScanningAlertStateAsync(tenant, alertNumber, newState, dismissReason));
+    }
 
-            HttpHeaders headers = new HttpHeaders();
-            headers.setBearerAuth(personalAccessToken);
-            headers.set("Accept", "application/vnd.github+json");
-            headers.setContentType(MediaType.APPLICATION_JSON);
-
-            // GH expects "state": "dismissed"|"open"
-            // if dismissed => "dismissed_reason" as well
-            String finalState = newState.equalsIgnoreCase("DISMISS")
-                    ? "dismissed" : "open";
-
-            Map<String,Object> body;
-            if (finalState.equals("dismissed")) {
-                body = Map.of(
-                        "state", "dismissed",
-                        "dismissed_reason", dismissReason != null ? dismissReason : "other"
-                );
-            } else {
-                body = Map.of("state", "open");
-            }
+    public CompletableFuture<AlertUpdateResult> updateCodeScanningAlertStateAsync(
+            TenantEntity tenant,
+            String alertNumber,
+            String newState,
+            String dismissReason
+    ) {
+        String url = String.format(
+                "https://api.github.com/repos/%s/%s/code-scanning/alerts/%s",
+                tenant.getOwner(), tenant.getRepo(), alertNumber
+        );
 
-            HttpEntity<Map<String,Object>> entity = new HttpEntity<>(body, headers);
-            ResponseEntity<String> resp = restTemplate.exchange(
-                    url, HttpMethod.PATCH, entity, String.class
+        // GH expects "state": "dismissed"|"open"
+        // if dismissed => "dismissed_reason" as well
+        String finalState = newState.equalsIgnoreCase("DISMISS")
+                ? "dismissed" : "open";
+
+        Map<String,Object> body;
+        if (finalState.equals("dismissed")) {
+            body = Map.of(
+                    "state", "dismissed",
+                    "dismissed_reason", dismissReason != null ? dismissReason : "other"
             );
+        } else {
+            body = Map.of("state", "open");
+        }
 
-            return resp.getStatusCode().is2xxSuccessful();
+        return patchAlert(tenants.get(tenant.getId()), url, body, alertNumber);
+    }
 
-        } catch (HttpClientErrorException.Conflict conflictEx) {
-            // 409 => already open => treat it as success
-            return true;
-        } catch (Exception e) {
-            e.printStackTrace();
-            return false;
-        }
+    public AlertUpdateResult updateDependabotAlertState(
+            TenantEntity tenant,
+            String alertNumber,
+            String newState,
+            String dismissReason
+    ) {
+        return OutboundHttp.await(updateDependabotAlertStateAsync(tenant, alertNumber, newState, dismissReason));
     }
 
-    public boolean updateDependabotAlertState(
-            String personalAccessToken,
-            String owner,
-            String repo,
+    public CompletableFuture<AlertUpdateResult> updateDependabotAlertStateAsync(
+            TenantEntity tenant,
             String alertNumber,
             String newState,
             String dismissReason
     ) {
-        try {
-            String url = String.format(
-                    "https://api.github.com/repos/%s/%s/dependabot/alerts/%s",
-                    owner, repo, alertNumber
-            );
+        String url = String.format(
+                "https://api.github.com/repos/%s/%s/dependabot/alerts/%s",
+                tenant.getOwner(), tenant.getRepo(), alertNumber
+        );
 
-            HttpHeaders headers = new HttpHeaders();
-            headers.setBearerAuth(personalAccessToken);
-            headers.set("Accept", "application/vnd.github+json");
-            headers.setContentType(MediaType.APPLICATION_JSON);
-
-            // GH expects { "state": "dismissed"|"open", "dismissed_reason": "..."}
-            String finalState = newState.equalsIgnoreCase("DISMISS")
-                    ? "dismissed" : "open";
-
-            Map<String,Object> body;
-            if ("dismissed".equals(finalState)) {
-                body = Map.of(
-                        "state", "dismissed",
-                        "dismissed_reason", dismissReason != null ? dismissReason : "other"
-                );
-            } else {
-                body = Map.of("state", "open");
-            }
+        // GH expects { "state": "dismissed"|"open", "dismissed_reason": "..."}
+        String finalState = newState.equalsIgnoreCase("DISMISS")
+                ? "dismissed" : "open";
 
-            HttpEntity<Map<String,Object>> entity = new HttpEntity<>(body, headers);
-            ResponseEntity<String> resp = restTemplate.exchange(
-                    url, HttpMethod.PATCH, entity, String.class
+        Map<String,Object> body;
+        if ("dismissed".equals(finalState)) {
+            body = Map.of(
+                    "state", "dismissed",
+                    "dismissed_reason", dismissReason != null ? dismissReason : "other"
             );
+        } else {
+            body = Map.of("state", "open");
+        }
 
-            return resp.getStatusCode().is2xxSuccessful();
+        return patchAlert(tenants.get(tenant.getId()), url, body, alertNumber);
+    }
 
-        } catch (HttpClientErrorException.Conflict conflictEx) {
-            // 409 => already open => treat it as success
-            return true;
-        } catch (Exception e) {
-            e.printStackTrace();
-            return false;
-        }
+    public AlertUpdateResult updateSecretScanningAlertState(
+            TenantEntity tenant,
+            String alertNumber,
+            String newState,
+            String dismissReason
+    ) {
+        return OutboundHttp.await(updateSecretScanningAlertStateAsync(tenant, alertNumber, newState, dismissReason));
     }
 
-    public boolean updateSecretScanningAlertState(
-            String personalAccessToken,
-            String owner,
-            String repo,
+    public CompletableFuture<AlertUpdateResult> updateSecretScanningAlertStateAsync(
+            TenantEntity tenant,
             String alertNumber,
             String newState,
             String dismissReason
     ) {
-        try {
-            String url = String.format(
-                    "https://api.github.com/repos/%s/%s/secret-scanning/alerts/%s",
-                    owner, repo, alertNumber
+        String url = String.format(
+                "https://api.github.com/repos/%s/%s/secret-scanning/alerts/%s",
+                tenant.getOwner(), tenant.getRepo(), alertNumber
+        );
+
+        /*
+         * Secret Scanning states: "open", "resolved", "dismissed"
+         * If "dismissed" or "resolved", pass "resolution" key (e.g. "false_positive", "wont_fix")
+         */
+        String ghState;
+        if ("DISMISS".equalsIgnoreCase(newState) || "RESOLVE".equalsIgnoreCase(newState)) {
+            ghState = "resolved";
+        } else {
+            ghState = "open";
+        }
+
+        Map<String, Object> body;
+        if ("resolved".equals(ghState)) {
+            body = Map.of(
+                    "state", "resolved",
+                    "resolution", (dismissReason != null && !dismissReason.isBlank())
+                            ? dismissReason
+                            : "wont_fix"
             );
+        } else {
+            body = Map.of("state", "open");
+        }
 
-            HttpHeaders headers = new HttpHeaders();
-            headers.setBearerAuth(personalAccessToken);
-            headers.set("Accept", "application/vnd.github+json");
-            headers.setContentType(MediaType.APPLICATION_JSON);
-
-            /*
-             * Secret Scanning states: "open", "resolved", "dismissed"
-             * If "dismissed" or "resolved", pass "resolution" key (e.g. "false_positive", "wont_fix")
-             */
-            String ghState;
-            if ("DISMISS".equalsIgnoreCase(newState) || "RESOLVE".equalsIgnoreCase(newState)) {
-                ghState = "resolved";
-            } else {
-                ghState = "open";
-            }
+        return patchAlert(tenants.get(tenant.getId()), url, body, alertNumber);
+    }
 
-            Map<String, Object> body;
-            if ("resolved".equals(ghState)) {
-                body = Map.of(
-                        "state", "resolved",
-                        "resolution", (dismissReason != null && !dismissReason.isBlank())
-                                ? dismissReason
-                                : "wont_fix"
-                );
-            } else {
-                body = Map.of("state", "open");
+    /**
+     * PATCHes an alert, paced by the {@link GithubRateLimiter} for the tenant's token. A rate-limited
+     * response pauses the token and the call is retried after the pause; 5xx / network trouble
+     * and a limit that won't lift in time become a TransientJobException for the retry topics.
+     *
+     * If we've seen this alert before, a conditional GET first checks whether it is already in
+     * the requested state; then nothing is sent and the result is UNCHANGED.
+     * {@code context} comes from the calling thread, so no stage has to load the tenant.
+     */
+    private CompletableFuture<AlertUpdateResult> patchAlert(TenantContext context, String url,
+                                                            Map<String, Object> body, String alertNumber) {
+        SimpleHttpRequest request;
+        try {
+            request = SimpleRequestBuilder.patch(url)
+                    .setHeader("Authorization", context.githubAuthorization())
+                    .setHeader("Accept", "application/vnd.github+json")
+                    .setBody(objectMapper.writeValueAsString(body), ContentType.APPLICATION_JSON)
+                    .build();
+        } catch (JsonProcessingException e) {
+            e.printStackTrace();
+            return CompletableFuture.completedFuture(AlertUpdateResult.FAILED);
+        }
+
+        return alreadyInState(context, url, body).thenCompose(unchanged -> {
+            if (unchanged) {
+                return CompletableFuture.completedFuture(AlertUpdateResult.UNCHANGED);
             }
+            return sendPatch(context, url, request, alertNumber, 1);
+        });
+    }
 
-            HttpEntity<Map<String, Object>> entity = new HttpEntity<>(body, headers);
-            ResponseEntity<String> resp = restTemplate.exchange(
-                    url, HttpMethod.PATCH, entity, String.class
-            );
+    private CompletableFuture<AlertUpdateResult> sendPatch(TenantContext context, String url,
+                                                           SimpleHttpRequest request, String alertNumber, int attempt) {
+        String token = context.tenant().getPersonalAccessToken();
+        return rateLimiter.acquire(token)
+                .thenCompose(permit -> http.execute(request).whenComplete((r, ex) -> permit.close()))
+                .thenCompose(resp -> {
+                    int code = resp.getCode();
+                    if (rateLimiter.onResponse(token, code, OutboundHttp.headersOf(resp))) {
+                        if (attempt < MAX_RATE_LIMITED_ATTEMPTS) {
+                            return sendPatch(context, url, request, alertNumber, attempt + 1);
+                        }
+                        throw new TransientJobException("GitHub kept rate limiting alert " + alertNumber, null);
+                    }
+                    if (OutboundHttp.isSuccess(resp)) {
+                        remember(url, resp);
+                        return CompletableFuture.completedFuture(AlertUpdateResult.UPDATED);
+                    }
+                    alertStateCache.invalidate(url);
+                    invalidateOnUnauthorized(context, code);
+                    if (code == HttpStatus.SC_CONFLICT) {
+                        // 409 => already open => treat it as success
+                        return CompletableFuture.completedFuture(AlertUpdateResult.UPDATED);
+                    }
+                    if (OutboundHttp.isTransient(resp)) {
+                        // 5xx => let the retry topics try again later
+                        throw new TransientJobException("GitHub alert update failed for alert " + alertNumber
+                                + " (" + code + ")", null);
+                    }
+                    System.out.println("[background-jobs] GitHub alert update failed for alert " + alertNumber
+                            + " => " + code + " " + resp.getBodyText());
+                    return CompletableFuture.completedFuture(AlertUpdateResult.FAILED);
+                });
+    }
+
+    /**
+     * Conditional GET against the cached ETag. Without a cached entry (or on any error) it
+     * answers false without calling GitHub, so the PATCH goes ahead as before.
+     */
+    private CompletableFuture<Boolean> alreadyInState(TenantContext context, String url, Map<String, Object> body) {
+        AlertStateCache.CachedAlert cached = alertStateCache.get(url);
+        if (cached == null || cached.etag() == null) {
+            return CompletableFuture.completedFuture(false);
+        }
+        SimpleHttpRequest request = SimpleRequestBuilder.get(url)
+                .setHeader("Authorization", context.githubAuthorization())
+                .setHeader("Accept", "application/vnd.github+json")
+                .setHeader("If-None-Match", cached.etag())
+                .build();
+
+        return http.execute(request).handle((resp, ex) -> {
+            if (ex != null) {
+                alertStateCache.invalidate(url);
+                return false;
+            }
+            rateLimiter.onResponse(context.tenant().getPersonalAccessToken(), resp.getCode(), OutboundHttp.headersOf(resp));
+            if (resp.getCode() == HttpStatus.SC_NOT_MODIFIED) {
+                return cached.matches(body);
+            }
+            if (!OutboundHttp.isSuccess(resp)) {
+                alertStateCache.invalidate(url);
+                invalidateOnUnauthorized(context, resp.getCode());
+                return false;
+            }
+            AlertStateCache.CachedAlert current = remember(url, resp);
+            return current != null && current.matches(body);
+        });
+    }
 
-            return resp.getStatusCode().is2xxSuccessful();
+    private void invalidateOnUnauthorized(TenantContext context, int code) {
+        if (code == HttpStatus.SC_UNAUTHORIZED) {
+            // the token may have been rotated since the tenant was cached
+            tenants.invalidate(context.tenantId());
+        }
+    }
 
-        } catch (HttpClientErrorException.Conflict conflictEx) {
-            // 409 => already open => treat it as success
-            return true;
+    private AlertStateCache.CachedAlert remember(String url, SimpleHttpResponse resp) {
+        Header etag = resp.getFirstHeader("ETag");
+        if (etag == null || resp.getBodyText() == null) {
+            alertStateCache.invalidate(url);
+            return null;
+        }
+        try {
+            JsonNode alert = objectMapper.readTree(resp.getBodyText());
+            Map<String, String> fields = new HashMap<>();
+            for (String field : STATE_FIELDS) {
+                JsonNode value = alert.get(field);
+                if (value != null && !value.isNull()) {
+                    fields.put(field, value.asText());
+                }
+            }
+            AlertStateCache.CachedAlert cached = new AlertStateCache.CachedAlert(etag.getValue(), fields);
+            alertStateCache.put(url, cached);
+            return cached;
         } catch (Exception e) {
-            e.printStackTrace();
-            return false;
+            alertStateCache.invalidate(url);
+            return null;
         }
     }
 }
@@ -0,0 +1,186 @@
+package com.example.capstone.background_jobs.github;
+
+import com.example.capstone.background_jobs.retry.TransientJobException;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Paces GitHub calls per personal access token instead of letting them fail with 403/429.
+ *
+ * Each token gets a token bucket for mutating requests (GitHub's secondary limits count those
+ * per minute), a cap on concurrent mutations, and what the last response said about the
+ * primary limit (X-RateLimit-Remaining / X-RateLimit-Reset) or a Retry-After. Callers get
+ * their permit once it's their turn; if that would take longer than max-wait the job fails
+ * with a TransientJobException and goes through the retry topics instead.
+ *
+ * A token that runs out only delays its own callers, until the reset time GitHub gave; after
+ * that its budget counts as full again. Other tokens (tenants) are not affected.
+ */
+@Component
+public class GithubRateLimiter {
+
+    // how often a caller waiting for a concurrency slot checks again
+    private static final long SLOT_POLL_MILLIS = 50;
+
+    // what GitHub asks for after a secondary limit without a usable hint
+    private static final long DEFAULT_PAUSE_MILLIS = 60_000;
+
+    private final Map<String, TokenBudget> budgets = new ConcurrentHashMap<>();
+
+    private final double mutationsPerSecond;
+    private final int burst;
+    private final int maxConcurrentMutations;
+    private final int reserve;
+    private final Duration maxWait;
+
+    public GithubRateLimiter(@Value("${github.rate-limit.mutations-per-minute:80}") int mutationsPerMinute,
+                             @Value("${github.rate-limit.burst:10}") int burst,
+                             @Value("${github.rate-limit.max-concurrent-mutations:4}") int maxConcurrentMutations,
+                             @Value("${github.rate-limit.reserve:50}") int reserve,
+                             @Value("${github.rate-limit.max-wait:20s}") Duration maxWait) {
+        this.mutationsPerSecond = mutationsPerMinute / 60.0;
+        this.burst = burst;
+        this.maxConcurrentMutations = maxConcurrentMutations;
+        this.reserve = reserve;
+        this.maxWait = maxWait;
+    }
+
+    /**
+     * Completes with a permit once a mutating request may be sent with this token, without
+     * blocking a thread while waiting. Close the permit once the response is in.
+     */
+    public CompletableFuture<Permit> acquire(String token) {
+        TokenBudget budget = budgets.computeIfAbsent(token, t -> new TokenBudget());
+        long deadline = System.nanoTime() + maxWait.toNanos();
+        long waitNanos = budget.reserve(System.nanoTime());
+        if (System.nanoTime() + waitNanos > deadline) {
+            budget.unreserve();
+            return CompletableFuture.failedFuture(new TransientJobException("GitHub rate limit: next slot in "
+                    + TimeUnit.NANOSECONDS.toSeconds(waitNanos) + "s", null));
+        }
+        CompletableFuture<Permit> permit = new CompletableFuture<>();
+        CompletableFuture.delayedExecutor(waitNanos, TimeUnit.NANOSECONDS)
+                .execute(() -> takeSlot(budget, deadline, permit));
+        return permit;
+    }
+
+    private void takeSlot(TokenBudget budget, long deadline, CompletableFuture<Permit> permit) {
+        if (permit.isDone()) {
+            return; // caller gave up
+        }
+        if (budget.concurrent.tryAcquire()) {
+            if (!permit.complete(new Permit(budget))) {
+                budget.concurrent.release();
+            }
+        } else if (System.nanoTime() > deadline) {
+            permit.completeExceptionally(
+                    new TransientJobException("GitHub rate limit: too many concurrent requests for token", null));
+        } else {
+            CompletableFuture.delayedExecutor(SLOT_POLL_MILLIS, TimeUnit.MILLISECONDS)
+                    .execute(() -> takeSlot(budget, deadline, permit));
+        }
+    }
+
+    /**
+     * True if the response is a primary or secondary rate limit rejection; either way the
+     * token's state is updated from the headers.
+     */
+    public boolean onResponse(String token, int status, HttpHeaders headers) {
+        TokenBudget budget = budgets.computeIfAbsent(token, t -> new TokenBudget());
+        if (headers == null) {
+            return false;
+        }
+        long now = System.currentTimeMillis();
+        String remaining = headers.getFirst("X-RateLimit-Remaining");
+        String reset = headers.getFirst("X-RateLimit-Reset");
+        String retryAfter = headers.getFirst("Retry-After");
+
+        if (remaining != null && reset != null && Long.parseLong(remaining.trim()) <= reserve) {
+            // primary limit nearly used up => nothing more until the window resets, then it's full again
+            budget.blockedUntilMillis.accumulateAndGet(Long.parseLong(reset.trim()) * 1000, Math::max);
+        }
+        if (retryAfter != null) {
+            budget.blockedUntilMillis.accumulateAndGet(retryAfterDeadline(retryAfter, now), Math::max);
+        }
+
+        boolean limited = status == 429 || (status == 403 && (retryAfter != null || "0".equals(remaining)));
+        if (limited) {
+            // secondary limit without a hint: GitHub asks for at least a minute
+            long pausedUntil = budget.blockedUntilMillis.accumulateAndGet(now + DEFAULT_PAUSE_MILLIS,
+                    (current, fallback) -> current > now ? current : fallback);
+            System.out.println("[background-jobs] GitHub rate limited (" + status + "), paused until "
+                    + pausedUntil);
+        }
+        return limited;
+    }
+
+    /**
+     * Retry-After is either delta-seconds or an HTTP-date; anything else counts as the default
+     * minute.
+     */
+    static long retryAfterDeadline(String retryAfter, long nowMillis) {
+        String value = retryAfter.trim();
+        try {
+            return nowMillis + Math.max(0, Long.parseLong(value)) * 1000;
+        } catch (NumberFormatException e) {
+            // not seconds, try the date form
+        }
+        try {
+            return ZonedDateTime.parse(value, DateTimeFormatter.RFC_1123_DATE_TIME).toInstant().toEpochMilli();
+        } catch (DateTimeParseException e) {
+            return nowMillis + DEFAULT_PAUSE_MILLIS;
+        }
+    }
+
+    public final class Permit implements AutoCloseable {
+
+        private final TokenBudget budget;
+
+        private Permit(TokenBudget budget) {
+            this.budget = budget;
+        }
+
+        @Override
+        public void close() {
+            budget.concurrent.release();
+        }
+    }
+
+    private final class TokenBudget {
+
+        private final Semaphore concurrent = new Semaphore(maxConcurrentMutations);
+        private double tokens = burst;
+        private long refilledAtNanos = System.nanoTime();
+        // only ever moved forward (accumulateAndGet with max), by concurrent responses
+        private final AtomicLong blockedUntilMillis = new AtomicLong();
+
+        /**
+         * Takes one token (possibly going into debt) and returns how long the caller has to
+         * wait for it, including any pause from the response headers.
+         */
+        private synchronized long reserve(long nowNanos) {
+            tokens = Math.min(burst, tokens + (nowNanos - refilledAtNanos) / 1e9 * mutationsPerSecond);
+            refilledAtNanos = nowNanos;
+            tokens -= 1;
+            long bucketWait = tokens >= 0 ? 0 : (long) (-tokens / mutationsPerSecond * 1e9);
+            long blockedWait = TimeUnit.MILLISECONDS.toNanos(Math.max(0, blockedUntilMillis.get() - System.currentTimeMillis()));
+            return Math.max(bucketWait, blockedWait);
+        }
+
+        private synchronized void unreserve() {
+            tokens += 1;
+        }
+    }
+}
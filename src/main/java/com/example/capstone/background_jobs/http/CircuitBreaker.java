@@ -0,0 +1,131 @@
+package com.example.capstone.background_jobs.http;
+
+import java.time.Duration;
+
+/**
+ * Failure-rate breaker for one upstream host.
+ *
+ * CLOSED: calls go through and the last {@code window} outcomes are kept; once at least
+ * {@code minimumCalls} are in and the failure rate reaches the threshold it opens.
+ * OPEN: calls are refused until {@code openDuration} has passed.
+ * HALF_OPEN: up to {@code probes} calls go through; a success closes it, a failure opens it again.
+ */
+public class CircuitBreaker {
+
+    public enum State {
+        CLOSED, HALF_OPEN, OPEN
+    }
+
+    private final String name;
+    private final double failureRateThreshold;
+    private final int minimumCalls;
+    private final long openNanos;
+    private final int probes;
+
+    private final boolean[] outcomes; // true = failure
+    private int next;
+    private int recorded;
+    private int failures;
+
+    private State state = State.CLOSED;
+    private long openedAt;
+    private int probesInFlight;
+
+    public CircuitBreaker(String name, double failureRateThreshold, int minimumCalls, int window,
+                          Duration openDuration, int probes) {
+        this.name = name;
+        this.failureRateThreshold = failureRateThreshold;
+        this.minimumCalls = Math.min(minimumCalls, window);
+        this.openNanos = openDuration.toNanos();
+        this.probes = probes;
+        this.outcomes = new boolean[window];
+    }
+
+    /**
+     * False if the call must not be made (open, or all half-open probes taken).
+     */
+    public synchronized boolean tryAcquire() {
+        if (state == State.OPEN) {
+            if (System.nanoTime() - openedAt < openNanos) {
+                return false;
+            }
+            state = State.HALF_OPEN;
+            probesInFlight = 0;
+        }
+        if (state == State.HALF_OPEN) {
+            if (probesInFlight >= probes) {
+                return false;
+            }
+            probesInFlight++;
+        }
+        return true;
+    }
+
+    public synchronized void onSuccess() {
+        if (state == State.HALF_OPEN) {
+            state = State.CLOSED;
+            reset();
+            System.out.println("[background-jobs] Circuit " + name + " closed");
+            return;
+        }
+        record(false);
+    }
+
+    public synchronized void onFailure() {
+        if (state == State.HALF_OPEN) {
+            open();
+            return;
+        }
+        record(true);
+        if (state == State.CLOSED && recorded >= minimumCalls
+                && (double) failures / recorded >= failureRateThreshold) {
+            open();
+        }
+    }
+
+    /**
+     * The call ended without telling us anything (e.g. cancelled); frees its probe slot.
+     */
+    public synchronized void onIgnored() {
+        if (state == State.HALF_OPEN && probesInFlight > 0) {
+            probesInFlight--;
+        }
+    }
+
+    public synchronized State getState() {
+        return state;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    private void open() {
+        state = State.OPEN;
+        openedAt = System.nanoTime();
+        reset();
+        System.out.println("[background-jobs] Circuit " + name + " open for "
+                + Duration.ofNanos(openNanos).toSeconds() + "s");
+    }
+
+    private void record(boolean failure) {
+        if (recorded == outcomes.length) {
+            if (outcomes[next]) {
+                failures--;
+            }
+        } else {
+            recorded++;
+        }
+        outcomes[next] = failure;
+        if (failure) {
+            failures++;
+        }
+        next = (next + 1) % outcomes.length;
+    }
+
+    private void reset() {
+        next = 0;
+        recorded = 0;
+        failures = 0;
+    }
+}
@@ -0,0 +1,65 @@
+package com.example.capstone.background_jobs.http;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * One {@link CircuitBreaker} per upstream host (api.github.com, each tenant's Jira site),
+ * created on first use. State is published as bgjobs.http.circuit.state{host}
+ * (0 closed, 1 half-open, 2 open) and refused calls as bgjobs.http.circuit.rejected{host}.
+ */
+@Component
+public class CircuitBreakers {
+
+    private final Map<String, CircuitBreaker> breakers = new ConcurrentHashMap<>();
+    private final Map<String, Counter> rejected = new ConcurrentHashMap<>();
+    private final MeterRegistry meterRegistry;
+
+    private final boolean enabled;
+    private final double failureRateThreshold;
+    private final int minimumCalls;
+    private final int window;
+    private final Duration openDuration;
+    private final int probes;
+
+    public CircuitBreakers(MeterRegistry meterRegistry,
+                           @Value("${http.circuit-breaker.enabled:true}") boolean enabled,
+                           @Value("${http.circuit-breaker.failure-rate-threshold:0.5}") double failureRateThreshold,
+                           @Value("${http.circuit-breaker.minimum-calls:10}") int minimumCalls,
+                           @Value("${http.circuit-breaker.window:20}") int window,
+                           @Value("${http.circuit-breaker.open-duration:30s}") Duration openDuration,
+                           @Value("${http.circuit-breaker.half-open-probes:1}") int probes) {
+        this.meterRegistry = meterRegistry;
+        this.enabled = enabled;
+        this.failureRateThreshold = failureRateThreshold;
+        this.minimumCalls = minimumCalls;
+        this.window = window;
+        this.openDuration = openDuration;
+        this.probes = probes;
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public CircuitBreaker forHost(String host) {
+        return breakers.computeIfAbsent(host, h -> {
+            CircuitBreaker breaker = new CircuitBreaker(h, failureRateThreshold, minimumCalls, window, openDuration, probes);
+            Gauge.builder("bgjobs.http.circuit.state", breaker, b -> b.getState().ordinal())
+                    .tag("host", h).register(meterRegistry);
+            return breaker;
+        });
+    }
+
+    public void countRejected(String host) {
+        rejected.computeIfAbsent(host, h -> meterRegistry.counter("bgjobs.http.circuit.rejected", "host", h))
+                .increment();
+    }
+}
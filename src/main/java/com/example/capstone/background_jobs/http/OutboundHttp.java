@@ -0,0 +1,136 @@
+package com.example.capstone.background_jobs.http;
+
+import com.example.capstone.background_jobs.retry.TransientJobException;
+import org.apache.hc.client5.http.async.methods.SimpleHttpRequest;
+import org.apache.hc.client5.http.async.methods.SimpleHttpResponse;
+import org.apache.hc.client5.http.async.methods.SimpleRequestProducer;
+import org.apache.hc.client5.http.async.methods.SimpleResponseConsumer;
+import org.apache.hc.client5.http.impl.async.CloseableHttpAsyncClient;
+import org.apache.hc.core5.concurrent.FutureCallback;
+import org.apache.hc.core5.http.Header;
+import org.springframework.http.HttpHeaders;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+
+/**
+ * Sends requests on the shared non-blocking client (OutboundHttpConfig). The returned future
+ * completes on an I/O reactor thread, so callers chain cheap work on it and keep anything
+ * blocking (DB, Kafka acks...) off it with the *Async variants.
+ *
+ * I/O failures (connect, reset, response timeout) complete the future with a
+ * TransientJobException so they go through the retry topics.
+ *
+ * Every call goes through its host's {@link CircuitBreaker}: I/O failures and 5xx count as
+ * failures, and while the breaker is open calls fail at once with a TransientJobException
+ * instead of each waiting out the timeouts.
+ */
+@Component
+public class OutboundHttp {
+
+    private final CloseableHttpAsyncClient client;
+    private final CircuitBreakers circuitBreakers;
+
+    public OutboundHttp(CloseableHttpAsyncClient outboundHttpClient, CircuitBreakers circuitBreakers) {
+        this.client = outboundHttpClient;
+        this.circuitBreakers = circuitBreakers;
+    }
+
+    public CompletableFuture<SimpleHttpResponse> execute(SimpleHttpRequest request) {
+        if (!circuitBreakers.isEnabled()) {
+            return send(request);
+        }
+        String host = request.getAuthority().getHostName();
+        CircuitBreaker breaker = circuitBreakers.forHost(host);
+        if (!breaker.tryAcquire()) {
+            circuitBreakers.countRejected(host);
+            return CompletableFuture.failedFuture(new TransientJobException("Circuit open for " + host
+                    + ", not calling " + request.getMethod() + " " + request.getRequestUri(), null));
+        }
+        CompletableFuture<SimpleHttpResponse> result = send(request);
+        result.whenComplete((resp, ex) -> {
+            if (result.isCancelled()) {
+                breaker.onIgnored();
+            } else if (ex != null || resp.getCode() >= 500) {
+                breaker.onFailure();
+            } else {
+                breaker.onSuccess();
+            }
+        });
+        return result;
+    }
+
+    private CompletableFuture<SimpleHttpResponse> send(SimpleHttpRequest request) {
+        CompletableFuture<SimpleHttpResponse> result = new CompletableFuture<>();
+        Future<SimpleHttpResponse> inFlight = client.execute(
+                SimpleRequestProducer.create(request),
+                SimpleResponseConsumer.create(),
+                new FutureCallback<>() {
+                    @Override
+                    public void completed(SimpleHttpResponse response) {
+                        result.complete(response);
+                    }
+
+                    @Override
+                    public void failed(Exception ex) {
+                        result.completeExceptionally(ex instanceof IOException
+                                ? new TransientJobException(request.getMethod() + " " + request.getRequestUri()
+                                        + " failed: " + ex.getMessage(), ex)
+                                : ex);
+                    }
+
+                    @Override
+                    public void cancelled() {
+                        result.cancel(false);
+                    }
+                });
+        // cancelling the caller's future aborts the exchange
+        result.whenComplete((r, ex) -> {
+            if (result.isCancelled()) {
+                inFlight.cancel(true);
+            }
+        });
+        return result;
+    }
+
+    public static boolean isSuccess(SimpleHttpResponse response) {
+        return response.getCode() >= 200 && response.getCode() < 300;
+    }
+
+    /**
+     * 5xx and 429: worth trying again later.
+     */
+    public static boolean isTransient(SimpleHttpResponse response) {
+        return response.getCode() >= 500 || response.getCode() == 429;
+    }
+
+    public static HttpHeaders headersOf(SimpleHttpResponse response) {
+        HttpHeaders headers = new HttpHeaders();
+        for (Header h : response.getHeaders()) {
+            headers.add(h.getName(), h.getValue());
+        }
+        return headers;
+    }
+
+    /**
+     * Blocking wrapper: waits for the future (interruptibly, so lane timeouts still work) and
+     * rethrows its failure as is.
+     */
+    public static <T> T await(CompletableFuture<T> future) {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            future.cancel(true);
+            Thread.currentThread().interrupt();
+            throw new TransientJobException("Interrupted while waiting for an outbound call", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException re) {
+                throw re;
+            }
+            throw new IllegalStateException(e.getCause());
+        }
+    }
+}
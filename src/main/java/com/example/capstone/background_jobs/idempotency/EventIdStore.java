@@ -0,0 +1,389 @@
+package com.example.capstone.background_jobs.idempotency;
+
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Remembers the eventIds of jobs that were acked SUCCESS, so a redelivery after a rebalance or
+ * a redeploy doesn't repeat the GitHub PATCH, the ES write or the Jira issue. Jobs that failed
+ * are not recorded and run again when they are re-sent.
+ *
+ * A delivery claims its eventId with {@link #tryClaim} before running and releases it when
+ * done, so two deliveries of the same event never run at the same time. Claims are in memory
+ * only; a restart drops them along with the jobs that held them.
+ *
+ * Storage is an append-only, memory-mapped log of 24-byte entries (128-bit hash of the
+ * eventId + the time it was recorded); the page cache keeps it across process restarts.
+ * Lookups never touch the file: a bloom filter answers most misses, and an off-heap
+ * open-addressing table of the hashes answers the rest. Entries older than the TTL are
+ * dropped when the log is compacted (periodically, or when it fills up).
+ *
+ * Capacity is capped at {@link #MAX_CAPACITY} so the mapped log and the index each stay
+ * under the 2 GB limit of a single buffer; a log that is full of live entries at the cap
+ * drops its oldest half.
+ */
+@Component
+public class EventIdStore implements AutoCloseable {
+
+    private static final int MAGIC = 0x45564944; // "EVID"
+    private static final int VERSION = 1;
+    private static final int HEADER_BYTES = 16;  // magic, version, entry count
+    private static final int COUNT_OFFSET = 8;
+    private static final int ENTRY_BYTES = 24;   // hash hi, hash lo, recordedAt millis
+    private static final int SLOT_BYTES = 16;    // hash hi, hash lo
+    private static final int BLOOM_BITS_PER_ENTRY = 10;
+    private static final int BLOOM_HASHES = 4;
+
+    public enum Claim {
+        /** Not done and not running: the caller runs it and must {@link #release} it afterwards. */
+        CLAIMED,
+        /** Already acked SUCCESS. */
+        DONE,
+        /** Another delivery is running it right now; that one sends the ack. */
+        IN_PROGRESS
+    }
+    // 2^25 entries => 768 MB log, 1 GB index (two slots per entry)
+    public static final int MAX_CAPACITY = 1 << 25;
+
+    private final boolean enabled;
+    private final Path path;
+    private final Duration ttl;
+    private int capacity;
+
+    // contains() only reads the lookups; record, compact and (re)open rebuild them
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private final Set<String> claims = ConcurrentHashMap.newKeySet();
+
+    private FileChannel channel;
+    private MappedByteBuffer log;
+    private int count;
+
+    private long[] bloom;
+    private int bloomMask;
+    private ByteBuffer index;
+    private int indexMask;
+
+    public EventIdStore(@Value("${jobs.idempotency.enabled:true}") boolean enabled,
+                        @Value("${jobs.idempotency.path:data/event-ids.log}") String path,
+                        @Value("${jobs.idempotency.ttl:7d}") Duration ttl,
+                        @Value("${jobs.idempotency.capacity:1000000}") int capacity) {
+        this.enabled = enabled;
+        this.path = Path.of(path);
+        this.ttl = ttl;
+        this.capacity = Math.min(Math.max(capacity, 16), MAX_CAPACITY);
+    }
+
+    @PostConstruct
+    public void open() throws IOException {
+        if (!enabled) {
+            return;
+        }
+        lock.writeLock().lock();
+        try {
+            openLog();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private void openLog() throws IOException {
+        if (path.getParent() != null) {
+            Files.createDirectories(path.getParent());
+        }
+        if (Files.exists(path)) {
+            // A log written with a bigger capacity keeps its size
+            long fileEntries = (Files.size(path) - HEADER_BYTES) / ENTRY_BYTES;
+            capacity = (int) Math.min(Math.max(capacity, fileEntries), MAX_CAPACITY);
+        }
+
+        channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        log = channel.map(FileChannel.MapMode.READ_WRITE, 0, bytesFor(capacity));
+
+        if (log.getInt(0) != MAGIC) {
+            // new (or unreadable) file => start empty
+            log.putInt(0, MAGIC);
+            log.putInt(4, VERSION);
+            log.putLong(COUNT_OFFSET, 0);
+        }
+        count = (int) Math.min(log.getLong(COUNT_OFFSET), capacity);
+
+        rebuildLookups();
+    }
+
+    /**
+     * Claims the eventId for one delivery, unless it is already done or claimed.
+     */
+    public Claim tryClaim(String eventId) {
+        if (!enabled || eventId == null) {
+            return Claim.CLAIMED;
+        }
+        if (!claims.add(eventId)) {
+            return Claim.IN_PROGRESS;
+        }
+        // checked under the claim, so a record() racing us is either seen here or comes later
+        if (contains(eventId)) {
+            claims.remove(eventId);
+            return Claim.DONE;
+        }
+        return Claim.CLAIMED;
+    }
+
+    /**
+     * Gives back a {@link Claim#CLAIMED} eventId once its delivery finished, however it ended.
+     */
+    public void release(String eventId) {
+        if (eventId != null) {
+            claims.remove(eventId);
+        }
+    }
+
+    /**
+     * True if a job with this eventId was acked SUCCESS (within the TTL).
+     */
+    public boolean contains(String eventId) {
+        if (!enabled || eventId == null) {
+            return false;
+        }
+        long hi = hash(eventId, 0x9E3779B97F4A7C15L);
+        long lo = nonZero(hash(eventId, 0xC2B2AE3D27D4EB4FL));
+        lock.readLock().lock();
+        try {
+            return mightContain(hi, lo) && indexContains(hi, lo);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Marks the job as done. Call only once its SUCCESS ack is decided, so failed jobs can still
+     * be redelivered.
+     */
+    public void record(String eventId) {
+        if (!enabled || eventId == null) {
+            return;
+        }
+        long hi = hash(eventId, 0x9E3779B97F4A7C15L);
+        long lo = nonZero(hash(eventId, 0xC2B2AE3D27D4EB4FL));
+        lock.writeLock().lock();
+        try {
+            if (mightContain(hi, lo) && indexContains(hi, lo)) {
+                return;
+            }
+            if (count == capacity) {
+                compact();
+            }
+
+            int offset = HEADER_BYTES + count * ENTRY_BYTES;
+            log.putLong(offset, hi);
+            log.putLong(offset + 8, lo);
+            log.putLong(offset + 16, System.currentTimeMillis());
+            count++;
+            // Publish the entry only after it is fully written
+            log.putLong(COUNT_OFFSET, count);
+
+            addToBloom(hi, lo);
+            addToIndex(hi, lo);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Rewrites the log without entries older than the TTL, doubling the capacity (up to
+     * {@link #MAX_CAPACITY}) if it would still be more than half full. At the cap, the oldest
+     * live entries are dropped instead.
+     */
+    @Scheduled(fixedDelayString = "${jobs.idempotency.compaction-interval-ms:3600000}")
+    public void compact() {
+        if (!enabled) {
+            return;
+        }
+        lock.writeLock().lock();
+        try {
+            if (log != null) {
+                compactLog();
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private void compactLog() {
+        long cutoff = System.currentTimeMillis() - ttl.toMillis();
+        int live = 0;
+        for (int i = 0; i < count; i++) {
+            if (log.getLong(HEADER_BYTES + i * ENTRY_BYTES + 16) >= cutoff) {
+                live++;
+            }
+        }
+        int newCapacity = capacity;
+        while (live > newCapacity / 2 && newCapacity < MAX_CAPACITY) {
+            newCapacity = (int) Math.min((long) newCapacity * 2, MAX_CAPACITY);
+        }
+        // entries are appended in time order, so the first live ones are the oldest
+        int drop = Math.max(0, live - newCapacity / 2);
+
+        Path tmp = path.resolveSibling(path.getFileName() + ".compact");
+        try {
+            try (FileChannel out = FileChannel.open(tmp, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                    StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+                MappedByteBuffer buf = out.map(FileChannel.MapMode.READ_WRITE, 0, bytesFor(newCapacity));
+                buf.putInt(0, MAGIC);
+                buf.putInt(4, VERSION);
+                int written = 0;
+                for (int i = 0; i < count; i++) {
+                    int from = HEADER_BYTES + i * ENTRY_BYTES;
+                    if (log.getLong(from + 16) < cutoff) {
+                        continue;
+                    }
+                    if (drop > 0) {
+                        drop--;
+                        continue;
+                    }
+                    int to = HEADER_BYTES + written * ENTRY_BYTES;
+                    buf.putLong(to, log.getLong(from));
+                    buf.putLong(to + 8, log.getLong(from + 8));
+                    buf.putLong(to + 16, log.getLong(from + 16));
+                    written++;
+                }
+                buf.putLong(COUNT_OFFSET, written);
+                buf.force();
+            }
+
+            channel.close();
+            Files.move(tmp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            capacity = newCapacity;
+            openLog();
+        } catch (IOException e) {
+            throw new IllegalStateException("Failed to compact " + path, e);
+        }
+    }
+
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return count;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        lock.writeLock().lock();
+        try {
+            if (channel != null && channel.isOpen()) {
+                log.force();
+                channel.close();
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    // ---- lookups ----
+
+    private void rebuildLookups() {
+        // sizes in long: capacity * bits per entry overflows int long before MAX_CAPACITY
+        long bloomBits = Long.highestOneBit(Math.max(64, (long) capacity * BLOOM_BITS_PER_ENTRY - 1)) << 1;
+        bloom = new long[(int) (bloomBits >>> 6)];
+        bloomMask = (int) (bloomBits - 1);
+
+        long slots = Long.highestOneBit(Math.max(16, (long) capacity * 2 - 1)) << 1;
+        index = ByteBuffer.allocateDirect(Math.toIntExact(slots * SLOT_BYTES));
+        indexMask = (int) (slots - 1);
+
+        for (int i = 0; i < count; i++) {
+            int offset = HEADER_BYTES + i * ENTRY_BYTES;
+            long hi = log.getLong(offset);
+            long lo = log.getLong(offset + 8);
+            addToBloom(hi, lo);
+            addToIndex(hi, lo);
+        }
+    }
+
+    private boolean mightContain(long hi, long lo) {
+        long step = lo | 1;
+        for (int k = 0; k < BLOOM_HASHES; k++) {
+            int bit = (int) ((hi + k * step) & bloomMask);
+            if ((bloom[bit >>> 6] & (1L << bit)) == 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private void addToBloom(long hi, long lo) {
+        long step = lo | 1;
+        for (int k = 0; k < BLOOM_HASHES; k++) {
+            int bit = (int) ((hi + k * step) & bloomMask);
+            bloom[bit >>> 6] |= 1L << bit;
+        }
+    }
+
+    private boolean indexContains(long hi, long lo) {
+        int slot = (int) (mix(lo) & indexMask);
+        while (true) {
+            int offset = slot * SLOT_BYTES;
+            long slotLo = index.getLong(offset + 8);
+            if (slotLo == 0) {
+                return false;
+            }
+            if (slotLo == lo && index.getLong(offset) == hi) {
+                return true;
+            }
+            slot = (slot + 1) & indexMask;
+        }
+    }
+
+    private void addToIndex(long hi, long lo) {
+        int slot = (int) (mix(lo) & indexMask);
+        while (index.getLong(slot * SLOT_BYTES + 8) != 0) {
+            slot = (slot + 1) & indexMask;
+        }
+        index.putLong(slot * SLOT_BYTES, hi);
+        index.putLong(slot * SLOT_BYTES + 8, lo);
+    }
+
+    private static long bytesFor(int entries) {
+        return HEADER_BYTES + (long) entries * ENTRY_BYTES;
+    }
+
+    private static long hash(String s, long seed) {
+        long h = seed ^ (s.length() * 0xFF51AFD7ED558CCDL);
+        for (int i = 0; i < s.length(); i++) {
+            h = (h ^ s.charAt(i)) * 0x100000001B3L;
+        }
+        return mix(h);
+    }
+
+    // 64-bit finalizer from MurmurHash3
+    private static long mix(long h) {
+        h ^= h >>> 33;
+        h *= 0xFF51AFD7ED558CCDL;
+        h ^= h >>> 33;
+        h *= 0xC4CEB9FE1A85EC53L;
+        h ^= h >>> 33;
+        return h;
+    }
+
+    // lo == 0 marks an empty index slot
+    private static long nonZero(long lo) {
+        return lo == 0 ? 1 : lo;
+    }
+}
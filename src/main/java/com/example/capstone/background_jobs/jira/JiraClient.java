@@ -0,0 +1,292 @@
+package com.example.capstone.background_jobs.jira;
+
+import com.example.capstone.background_jobs.http.OutboundHttp;
+import com.example.capstone.background_jobs.model.TenantEntity;
+import com.example.capstone.background_jobs.retry.TransientJobException;
+import com.example.capstone.background_jobs.tenant.TenantContext;
+import com.example.capstone.background_jobs.tenant.TenantContextCache;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.apache.hc.client5.http.async.methods.SimpleHttpRequest;
+import org.apache.hc.client5.http.async.methods.SimpleHttpResponse;
+import org.apache.hc.client5.http.async.methods.SimpleRequestBuilder;
+import org.apache.hc.client5.http.config.RequestConfig;
+import org.apache.hc.core5.http.ContentType;
+import org.apache.hc.core5.util.Timeout;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+
+/**
+ * Jira issue creation and transitions for a tenant's Jira site (TenantEntity.projectName),
+ * on the shared non-blocking HTTP client. The *Async methods return right away; the plain
+ * ones wait for them.
+ *
+ * 5xx / 429 / network trouble fail with a TransientJobException (retry topics), any other
+ * error response with an IllegalStateException.
+ */
+@Service
+public class JiraClient {
+
+    // Jira's limit for /issue/bulk
+    public static final int MAX_BULK_ISSUES = 50;
+
+    // Safety net while learning a workflow
+    private static final int MAX_TRANSITIONS = 20;
+
+    public record NewIssue(String summary, String description) {
+    }
+
+    private record IssueStatus(String id, boolean done) {
+    }
+
+    private final OutboundHttp http;
+    private final ObjectMapper objectMapper;
+    private final JiraWorkflowCache workflowCache;
+    private final TenantContextCache tenants;
+    private final RequestConfig requestConfig;
+
+    public JiraClient(OutboundHttp http, ObjectMapper objectMapper, JiraWorkflowCache workflowCache,
+                      TenantContextCache tenants,
+                      @Value("${jira.client.response-timeout:10s}") Duration responseTimeout,
+                      @Value("${http.client.pool-wait-timeout:5s}") Duration poolWaitTimeout) {
+        this.http = http;
+        this.objectMapper = objectMapper;
+        this.workflowCache = workflowCache;
+        this.tenants = tenants;
+        this.requestConfig = RequestConfig.custom()
+                .setConnectionRequestTimeout(Timeout.of(poolWaitTimeout))
+                .setResponseTimeout(Timeout.of(responseTimeout))
+                .build();
+    }
+
+    public String createIssue(TenantEntity tenant, String summary, String description) {
+        return OutboundHttp.await(createIssueAsync(tenant, summary, description));
+    }
+
+    /**
+     * Creates a Bug in the tenant's project; completes with the issue key (like "CAP-10").
+     */
+    public CompletableFuture<String> createIssueAsync(TenantEntity tenant, String summary, String description) {
+        TenantContext context = tenants.get(tenant.getId());
+        String jiraUrl = context.jiraUrl("/rest/api/2/issue");
+
+        return send(context, SimpleRequestBuilder.post(jiraUrl), Map.of("fields", issueFields(tenant, summary, description)))
+                .thenApply(resp -> {
+                    // The JSON has "id" (internal numeric ID) and "key" (Jira ticket key like CAP-123); we keep the key
+                    JsonNode key = readBody(resp).get("key");
+                    if (key == null || key.isNull()) {
+                        throw new IllegalStateException("No 'key' returned from Jira create issue response");
+                    }
+                    return key.asText();
+                });
+    }
+
+    public List<String> createIssues(TenantEntity tenant, List<NewIssue> issues) {
+        return OutboundHttp.await(createIssuesAsync(tenant, issues));
+    }
+
+    /**
+     * Creates up to {@link #MAX_BULK_ISSUES} Bugs with one call to /issue/bulk. Completes with the
+     * issue keys in the order of {@code issues}; null where Jira rejected that one.
+     */
+    public CompletableFuture<List<String>> createIssuesAsync(TenantEntity tenant, List<NewIssue> issues) {
+        if (issues.size() > MAX_BULK_ISSUES) {
+            throw new IllegalArgumentException("At most " + MAX_BULK_ISSUES + " issues per bulk create, got " + issues.size());
+        }
+        TenantContext context = tenants.get(tenant.getId());
+        String jiraUrl = context.jiraUrl("/rest/api/2/issue/bulk");
+        List<Map<String, Object>> updates = issues.stream()
+                .map(issue -> Map.<String, Object>of("fields", issueFields(tenant, issue.summary(), issue.description())))
+                .toList();
+
+        return send(context, SimpleRequestBuilder.post(jiraUrl), Map.of("issueUpdates", updates))
+                .thenApply(resp -> {
+                    JsonNode body = readBody(resp);
+                    // "issues" lists the created ones in request order, "errors" names the rest by index
+                    Set<Integer> failed = new HashSet<>();
+                    for (JsonNode error : body.path("errors")) {
+                        failed.add(error.path("failedElementNumber").asInt());
+                        System.out.println("Jira bulk create rejected issue " + error.path("failedElementNumber").asInt()
+                                + ": " + error.path("elementErrors"));
+                    }
+                    Iterator<JsonNode> created = body.path("issues").iterator();
+                    List<String> keys = new ArrayList<>(issues.size());
+                    for (int i = 0; i < issues.size(); i++) {
+                        keys.add(!failed.contains(i) && created.hasNext() ? created.next().path("key").asText(null) : null);
+                    }
+                    return keys;
+                });
+    }
+
+    private static Map<String, Object> issueFields(TenantEntity tenant, String summary, String description) {
+        Map<String, Object> fields = new HashMap<>();
+        fields.put("project", Map.of("key", tenant.getProjectKey()));
+        fields.put("summary", summary);
+        fields.put("description", description);
+        fields.put("issuetype", Map.of("name", "Bug"));
+        return fields;
+    }
+
+    public void transitionToFinal(TenantEntity tenant, String ticketKey) {
+        OutboundHttp.await(transitionToFinalAsync(tenant, ticketKey));
+    }
+
+    /**
+     * Moves the ticket to a "done" status (or one with no way out). Along a cached path for the
+     * project's workflow if there is one: one GET for the ticket's status, then one POST per step.
+     * Otherwise the path is learned on the way, preferring transitions into "done" and never
+     * re-entering a status.
+     */
+    public CompletableFuture<Void> transitionToFinalAsync(TenantEntity tenant, String ticketKey) {
+        TenantContext context = tenants.get(tenant.getId());
+        String project = JiraWorkflowCache.projectOf(tenant.getProjectName(), tenant.getProjectKey());
+        return currentStatus(context, ticketKey).thenCompose(status -> {
+            if (status.done()) {
+                return CompletableFuture.<Void>completedFuture(null);
+            }
+            List<JiraWorkflowCache.Edge> path = workflowCache.pathToDone(project, status.id());
+            if (path == null) {
+                return discover(context, ticketKey, project, status.id(), new HashSet<>(Set.of(status.id())), 0);
+            }
+            return applyPath(context, ticketKey, path, 0).exceptionallyCompose(ex -> {
+                Throwable cause = ex instanceof CompletionException && ex.getCause() != null ? ex.getCause() : ex;
+                if (!(cause instanceof IllegalStateException)) {
+                    return CompletableFuture.failedFuture(cause);
+                }
+                // the workflow changed under us; forget it and walk from wherever the ticket is now
+                System.out.println("Cached transition path failed for ticket=" + ticketKey + ": " + cause.getMessage());
+                workflowCache.invalidate(project);
+                return currentStatus(context, ticketKey).thenCompose(now -> now.done()
+                        ? CompletableFuture.<Void>completedFuture(null)
+                        : discover(context, ticketKey, project, now.id(), new HashSet<>(Set.of(now.id())), 0));
+            });
+        });
+    }
+
+    private CompletableFuture<IssueStatus> currentStatus(TenantContext context, String ticketKey) {
+        String issueUrl = context.jiraUrl("/rest/api/2/issue/" + ticketKey + "?fields=status");
+        return send(context, SimpleRequestBuilder.get(issueUrl), null).thenApply(resp -> {
+            JsonNode status = readBody(resp).path("fields").path("status");
+            if (status.path("id").asText().isEmpty()) {
+                throw new IllegalStateException("No status returned for ticket " + ticketKey);
+            }
+            return new IssueStatus(status.path("id").asText(), isDone(status));
+        });
+    }
+
+    private CompletableFuture<Void> applyPath(TenantContext context, String ticketKey,
+                                              List<JiraWorkflowCache.Edge> path, int step) {
+        if (step == path.size()) {
+            return CompletableFuture.completedFuture(null);
+        }
+        return applyTransition(context, ticketKey, path.get(step))
+                .thenCompose(done -> applyPath(context, ticketKey, path, step + 1));
+    }
+
+    private CompletableFuture<Void> discover(TenantContext context, String ticketKey, String project,
+                                             String statusId, Set<String> visited, int applied) {
+        if (applied >= MAX_TRANSITIONS) {
+            return CompletableFuture.failedFuture(new IllegalStateException("Ticket " + ticketKey
+                    + " is not done after " + MAX_TRANSITIONS + " transitions"));
+        }
+        // "to" (with its status category) is in the response by default; transitions.fields is not needed
+        String transitionsUrl = context.jiraUrl("/rest/api/2/issue/" + ticketKey + "/transitions");
+        return send(context, SimpleRequestBuilder.get(transitionsUrl), null).thenCompose(resp -> {
+            List<JiraWorkflowCache.Edge> edges = new ArrayList<>();
+            for (JsonNode t : readBody(resp).path("transitions")) {
+                JsonNode to = t.path("to");
+                edges.add(new JiraWorkflowCache.Edge(t.path("id").asText(), t.path("name").asText(),
+                        to.path("id").asText(), isDone(to)));
+            }
+            workflowCache.learn(project, statusId, edges);
+            if (edges.isEmpty()) {
+                System.out.println("No more transitions available. Ticket " + ticketKey + " is likely at final state.");
+                return CompletableFuture.<Void>completedFuture(null);
+            }
+            JiraWorkflowCache.Edge next = edges.stream().filter(JiraWorkflowCache.Edge::toDone).findFirst()
+                    .or(() -> edges.stream().filter(e -> !visited.contains(e.toStatusId())).findFirst())
+                    .orElse(null);
+            if (next == null) {
+                throw new IllegalStateException("Every transition of ticket " + ticketKey
+                        + " leads back to a status it has already been in");
+            }
+            return applyTransition(context, ticketKey, next).thenCompose(done -> {
+                if (next.toDone()) {
+                    return CompletableFuture.<Void>completedFuture(null);
+                }
+                visited.add(next.toStatusId());
+                return discover(context, ticketKey, project, next.toStatusId(), visited, applied + 1);
+            });
+        });
+    }
+
+    private CompletableFuture<Void> applyTransition(TenantContext context, String ticketKey, JiraWorkflowCache.Edge edge) {
+        String transitionsUrl = context.jiraUrl("/rest/api/2/issue/" + ticketKey + "/transitions");
+        System.out.println("Applying transition: " + edge.name() + " (ID=" + edge.transitionId()
+                + ") for ticket=" + ticketKey);
+        Map<String, Object> body = Map.of("transition", Map.of("id", edge.transitionId()));
+        return send(context, SimpleRequestBuilder.post(transitionsUrl), body).thenApply(resp -> null);
+    }
+
+    private static boolean isDone(JsonNode status) {
+        return "done".equals(status.path("statusCategory").path("key").asText());
+    }
+
+    /**
+     * The context is resolved once by the public method, never inside a stage, so a stage running
+     * on an I/O thread never goes to MySQL on a cache miss.
+     */
+    private CompletableFuture<SimpleHttpResponse> send(TenantContext context, SimpleRequestBuilder builder, Object body) {
+        // base URL and auth header are prebuilt per tenant by TenantContextCache
+        builder.setHeader("Authorization", context.jiraAuthorization())
+                .setHeader("Accept", "application/json")
+                .setRequestConfig(requestConfig);
+        if (body != null) {
+            try {
+                builder.setBody(objectMapper.writeValueAsString(body), ContentType.APPLICATION_JSON);
+            } catch (JsonProcessingException e) {
+                return CompletableFuture.failedFuture(e);
+            }
+        }
+        SimpleHttpRequest request = builder.build();
+        return http.execute(request).thenApply(resp -> {
+            if (OutboundHttp.isSuccess(resp)) {
+                return resp;
+            }
+            if (resp.getCode() == 401) {
+                // credentials may have changed since the tenant was cached
+                tenants.invalidate(context.tenantId());
+            }
+            String message = "Jira " + request.getMethod() + " " + request.getRequestUri()
+                    + " returned " + resp.getCode() + ": " + resp.getBodyText();
+            if (OutboundHttp.isTransient(resp)) {
+                throw new TransientJobException(message, null);
+            }
+            throw new IllegalStateException(message);
+        });
+    }
+
+    private JsonNode readBody(SimpleHttpResponse resp) {
+        String text = resp.getBodyText();
+        if (text == null || text.isBlank()) {
+            return objectMapper.missingNode();
+        }
+        try {
+            return objectMapper.readTree(text);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Unreadable Jira response", e);
+        }
+    }
+}
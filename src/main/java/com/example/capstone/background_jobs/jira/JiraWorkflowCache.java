@@ -0,0 +1,90 @@
+package com.example.capstone.background_jobs.jira;
+
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * What JiraClient has learned about each project's workflow (keyed by site + project key):
+ * the transitions Jira offered from every status a ticket has been in. Once a path to a
+ * "done" status is known, tickets are moved along it without fetching transitions again.
+ *
+ * A status with no outgoing transitions also counts as final. When a cached transition is
+ * refused the project's workflow is dropped and relearned.
+ */
+@Component
+public class JiraWorkflowCache {
+
+    /**
+     * One transition offered from a status.
+     */
+    public record Edge(String transitionId, String name, String toStatusId, boolean toDone) {
+    }
+
+    private final Map<String, Map<String, List<Edge>>> workflows = new ConcurrentHashMap<>();
+
+    public static String projectOf(String site, String projectKey) {
+        return site + "/" + projectKey;
+    }
+
+    public void learn(String project, String statusId, List<Edge> edges) {
+        workflows.computeIfAbsent(project, p -> new ConcurrentHashMap<>()).put(statusId, List.copyOf(edges));
+    }
+
+    /**
+     * Shortest known path from the status to a final one: empty if it is final already, null if
+     * no path is known yet.
+     */
+    public List<Edge> pathToDone(String project, String statusId) {
+        Map<String, List<Edge>> graph = workflows.get(project);
+        if (graph == null) {
+            return null;
+        }
+        if (isFinal(graph, statusId)) {
+            return Collections.emptyList();
+        }
+        // breadth-first over the learned transitions; cameFrom maps a status to the status before it
+        Map<String, String> cameFrom = new HashMap<>();
+        Map<String, Edge> reachedBy = new HashMap<>();
+        cameFrom.put(statusId, null);
+        Queue<String> queue = new ArrayDeque<>();
+        queue.add(statusId);
+        while (!queue.isEmpty()) {
+            String status = queue.poll();
+            for (Edge edge : graph.getOrDefault(status, List.of())) {
+                String to = edge.toStatusId();
+                if (cameFrom.containsKey(to)) {
+                    continue;
+                }
+                cameFrom.put(to, status);
+                reachedBy.put(to, edge);
+                if (edge.toDone() || isFinal(graph, to)) {
+                    List<Edge> path = new ArrayList<>();
+                    for (String s = to; !s.equals(statusId); s = cameFrom.get(s)) {
+                        path.add(reachedBy.get(s));
+                    }
+                    Collections.reverse(path);
+                    return path;
+                }
+                queue.add(to);
+            }
+        }
+        return null;
+    }
+
+    public void invalidate(String project) {
+        workflows.remove(project);
+    }
+
+    private static boolean isFinal(Map<String, List<Edge>> graph, String statusId) {
+        List<Edge> edges = graph.get(statusId);
+        return edges != null && edges.isEmpty();
+    }
+}
@@ -0,0 +1,84 @@
+package com.example.capstone.background_jobs.model;
+
+import jakarta.persistence.*;
+import org.springframework.data.domain.Persistable;
+
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+/**
+ * An acknowledgement waiting to be published to job-acknowledgement-topic.
+ * Written in the same transaction as the job's own rows, drained by AckOutboxRelay.
+ */
+@Entity
+@Table(name = "ack_outbox", indexes = @Index(name = "idx_ack_outbox_created_at", columnList = "created_at"))
+public class AckOutboxEntity implements Persistable<String> {
+
+    // Assigned (the acknowledgementId) rather than IDENTITY, so Hibernate can batch the inserts
+    @Id
+    @Column(name = "id", length = 36)
+    private String id;
+
+    @Column(name = "job_id", nullable = false)
+    private String jobId;
+
+    @Enumerated(EnumType.STRING)
+    @Column(name = "status", length = 16, nullable = false)
+    private AcknowledgementStatus status;
+
+    @Column(name = "created_at", nullable = false, updatable = false)
+    private LocalDateTime createdAt;
+
+    // Set while a relay is publishing the row; other relays skip it until then
+    @Column(name = "claimed_until")
+    private LocalDateTime claimedUntil;
+
+    // Lets save() go straight to persist() instead of selecting the assigned id first
+    @Transient
+    private boolean isNew = true;
+
+    public AckOutboxEntity() {}
+
+    public AckOutboxEntity(String jobId, AcknowledgementStatus status) {
+        this.id = UUID.randomUUID().toString();
+        this.jobId = jobId;
+        this.status = status;
+    }
+
+    @PrePersist
+    public void onCreate() {
+        this.createdAt = LocalDateTime.now();
+    }
+
+    @PostLoad
+    @PostPersist
+    public void markNotNew() {
+        this.isNew = false;
+    }
+
+    @Override
+    public String getId() {
+        return id;
+    }
+
+    @Override
+    public boolean isNew() {
+        return isNew;
+    }
+
+    public String getJobId() {
+        return jobId;
+    }
+
+    public AcknowledgementStatus getStatus() {
+        return status;
+    }
+
+    public LocalDateTime getCreatedAt() {
+        return createdAt;
+    }
+
+    public LocalDateTime getClaimedUntil() {
+        return claimedUntil;
+    }
+}
@@ -0,0 +1,106 @@
+package com.example.capstone.background_jobs.producer;
+
+import com.example.capstone.background_jobs.model.AckOutboxEntity;
+import com.example.capstone.background_jobs.repository.AckOutboxRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Drains the ack_outbox table to job-acknowledgement-topic.
+ *
+ * Each round claims up to batch-size of the oldest unclaimed rows in a short transaction
+ * (claimed_until = now + claim-timeout), then hands them all to the (batching)
+ * AcknowledgementProducer, waits for the broker once for the whole batch, and deletes the rows
+ * that made it in a second short transaction. No row lock or transaction is held while Kafka is
+ * being waited on. Rows that failed keep their claim until it expires and are then picked up
+ * again, so acks are delivered at least once.
+ */
+@Component
+public class AckOutboxRelay {
+
+    private final AckOutboxRepository outboxRepository;
+    private final AcknowledgementProducer ackProducer;
+    private final TransactionTemplate transactionTemplate;
+
+    @Value("${jobs.ack-outbox.batch-size:500}")
+    private int batchSize;
+
+    @Value("${jobs.ack-outbox.send-timeout-ms:30000}")
+    private long sendTimeoutMs;
+
+    @Value("${jobs.ack-outbox.claim-timeout:60s}")
+    private Duration claimTimeout;
+
+    public AckOutboxRelay(AckOutboxRepository outboxRepository,
+                          AcknowledgementProducer ackProducer,
+                          TransactionTemplate transactionTemplate) {
+        this.outboxRepository = outboxRepository;
+        this.ackProducer = ackProducer;
+        this.transactionTemplate = transactionTemplate;
+    }
+
+    @Scheduled(fixedDelayString = "${jobs.ack-outbox.relay-interval-ms:200}")
+    public void drain() {
+        try {
+            // keep going while the batches come back full
+            boolean more;
+            do {
+                more = relayBatch();
+            } while (more);
+        } catch (Exception e) {
+            e.printStackTrace();
+        }
+    }
+
+    private boolean relayBatch() {
+        List<AckOutboxEntity> batch = transactionTemplate.execute(status -> claimBatch());
+        if (batch == null || batch.isEmpty()) {
+            return false;
+        }
+
+        List<CompletableFuture<Void>> sends = new ArrayList<>(batch.size());
+        for (AckOutboxEntity row : batch) {
+            sends.add(ackProducer.sendAck(row.getId(), row.getJobId(), row.getStatus()));
+        }
+        try {
+            // one bounded wait for the whole batch; whatever is not done by then is retried later
+            CompletableFuture.allOf(sends.toArray(new CompletableFuture[0])).get(sendTimeoutMs, TimeUnit.MILLISECONDS);
+        } catch (Exception e) {
+            // some sends failed or are still pending => sorted out per row below
+        }
+
+        List<String> delivered = new ArrayList<>(batch.size());
+        for (int i = 0; i < batch.size(); i++) {
+            CompletableFuture<Void> send = sends.get(i);
+            if (send.isDone() && !send.isCompletedExceptionally()) {
+                delivered.add(batch.get(i).getId());
+            } else {
+                System.out.println("[background-jobs] Outbox ack for job " + batch.get(i).getJobId()
+                        + " not delivered, keeping it for a later round");
+            }
+        }
+        if (!delivered.isEmpty()) {
+            transactionTemplate.executeWithoutResult(status -> outboxRepository.deleteAllByIdInBatch(delivered));
+        }
+
+        return delivered.size() == batchSize;
+    }
+
+    private List<AckOutboxEntity> claimBatch() {
+        LocalDateTime now = LocalDateTime.now();
+        List<AckOutboxEntity> batch = outboxRepository.lockClaimable(now, batchSize);
+        if (!batch.isEmpty()) {
+            outboxRepository.claim(batch.stream().map(AckOutboxEntity::getId).toList(), now.plus(claimTimeout));
+        }
+        return batch;
+    }
+}
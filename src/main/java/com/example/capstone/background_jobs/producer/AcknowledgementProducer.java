@@ -1,41 +1,123 @@
 package com.example.capstone.background_jobs.producer;
 
-import com.example.capstone.background_jobs.dto.UpdateAcknowledgement;
-import com.example.capstone.background_jobs.model.AcknowledgementEvent;
+import com.example.capstone.background_jobs.idempotency.EventIdStore;
 import com.example.capstone.background_jobs.model.AcknowledgementStatus;
+import com.fasterxml.jackson.core.JsonEncoding;
+import com.fasterxml.jackson.core.JsonGenerator;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.kafka.core.KafkaTemplate;
 import org.springframework.stereotype.Service;
 
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+
+/**
+ * Publishes job acknowledgements without making the job wait for the broker.
+ *
+ * Acks are written straight to bytes with a JsonGenerator (the JSON the JFC side expects),
+ * keyed by jobId and handed to the batched/compressed/idempotent ackKafkaTemplate. The send
+ * completes in the background. Retrying is left to the producer itself: being idempotent it
+ * retries without duplicates until delivery-timeout-ms runs out, and a record it gives up on
+ * is dropped. Outcomes are counted under bgjobs.ack.*.
+ *
+ * A job is recorded in the {@link EventIdStore} once its SUCCESS ack is queued, so a
+ * redelivery gets the same ack instead of running again.
+ */
 @Service
 public class AcknowledgementProducer {
 
+    private static final Logger log = LoggerFactory.getLogger(AcknowledgementProducer.class);
+
     @Value("${kafka.topics.job-acknowledgement-topic}")
     private String jobAckTopic;
 
-    private final KafkaTemplate<String, String> kafkaTemplate;
+    private final KafkaTemplate<String, byte[]> kafkaTemplate;
     private final ObjectMapper objectMapper;
+    private final EventIdStore eventIdStore;
+    private final Counter sentSuccess;
+    private final Counter sentFailure;
+    private final Counter dropped;
 
-    public AcknowledgementProducer(KafkaTemplate<String, String> kafkaTemplate) {
+    public AcknowledgementProducer(@Qualifier("ackKafkaTemplate") KafkaTemplate<String, byte[]> kafkaTemplate,
+                                   ObjectMapper objectMapper,
+                                   EventIdStore eventIdStore,
+                                   MeterRegistry meterRegistry) {
         this.kafkaTemplate = kafkaTemplate;
-        this.objectMapper = new ObjectMapper();
+        this.objectMapper = objectMapper;
+        this.eventIdStore = eventIdStore;
+        this.sentSuccess = meterRegistry.counter("bgjobs.ack.sent", "status", AcknowledgementStatus.SUCCESS.name());
+        this.sentFailure = meterRegistry.counter("bgjobs.ack.sent", "status", AcknowledgementStatus.FAILURE.name());
+        this.dropped = meterRegistry.counter("bgjobs.ack.dropped");
     }
 
-    public void sendUpdateAck(String jobId, boolean success) {
-        try {
-            AcknowledgementEvent ackEvent = new AcknowledgementEvent(jobId);
-            ackEvent.setStatus(success ? AcknowledgementStatus.SUCCESS : AcknowledgementStatus.FAILURE);
-
-            UpdateAcknowledgement ack = new UpdateAcknowledgement(null, ackEvent);
+    /**
+     * Queues the ack and returns right away. The future completes once the broker has it, or
+     * exceptionally once the producer gave up on it.
+     */
+    public CompletableFuture<Void> sendUpdateAck(String jobId, boolean success) {
+        AcknowledgementStatus status = success ? AcknowledgementStatus.SUCCESS : AcknowledgementStatus.FAILURE;
+        return sendAck(UUID.randomUUID().toString(), jobId, status);
+    }
 
-            String json = objectMapper.writeValueAsString(ack);
-            kafkaTemplate.send(jobAckTopic, json);
-            System.out.println("[background-jobs] Sent UpdateAcknowledgement => " + json);
+    /**
+     * Same as {@link #sendUpdateAck} with a given acknowledgementId (the outbox row id), so a
+     * re-sent ack can be recognised as the same one.
+     */
+    public CompletableFuture<Void> sendAck(String acknowledgementId, String jobId, AcknowledgementStatus status) {
+        byte[] value;
+        try {
+            value = serialize(acknowledgementId, jobId, status);
+        } catch (IOException e) {
+            log.error("Could not serialize ack for job {}", jobId, e);
+            dropped.increment();
+            return CompletableFuture.failedFuture(e);
+        }
+        if (status == AcknowledgementStatus.SUCCESS) {
+            eventIdStore.record(jobId);
+        }
 
+        CompletableFuture<?> sent;
+        try {
+            sent = kafkaTemplate.send(jobAckTopic, jobId, value);
         } catch (Exception e) {
-            e.printStackTrace();
+            // e.g. buffer still full after max.block.ms
+            sent = CompletableFuture.failedFuture(e);
         }
+        // Runs on the producer's I/O thread, so only count here
+        return sent.handle((result, ex) -> {
+            if (ex == null) {
+                (status == AcknowledgementStatus.SUCCESS ? sentSuccess : sentFailure).increment();
+                return null;
+            }
+            dropped.increment();
+            log.error("Could not send ack for job {}: {}", jobId, ex.toString());
+            throw ex instanceof CompletionException ce ? ce : new CompletionException(ex);
+        });
     }
-}
 
+    /**
+     * {"acknowledgementId":"...","payload":{"status":"SUCCESS","jobId":"..."}}
+     */
+    private byte[] serialize(String acknowledgementId, String jobId, AcknowledgementStatus status) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(128);
+        try (JsonGenerator gen = objectMapper.getFactory().createGenerator(out, JsonEncoding.UTF8)) {
+            gen.writeStartObject();
+            gen.writeStringField("acknowledgementId", acknowledgementId);
+            gen.writeObjectFieldStart("payload");
+            gen.writeStringField("status", status.name());
+            gen.writeStringField("jobId", jobId);
+            gen.writeEndObject();
+            gen.writeEndObject();
+        }
+        return out.toByteArray();
+    }
+}
@@ -0,0 +1,23 @@
+package com.example.capstone.background_jobs.repository;
+
+import com.example.capstone.background_jobs.model.AckOutboxEntity;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+public interface AckOutboxRepository extends JpaRepository<AckOutboxEntity, String> {
+
+    // Oldest unclaimed (or expired) first; rows locked by another instance's relay are skipped rather than waited on
+    @Query(value = "SELECT * FROM ack_outbox WHERE claimed_until IS NULL OR claimed_until < :now "
+            + "ORDER BY created_at LIMIT :limit FOR UPDATE SKIP LOCKED",
+            nativeQuery = true)
+    List<AckOutboxEntity> lockClaimable(@Param("now") LocalDateTime now, @Param("limit") int limit);
+
+    @Modifying
+    @Query("UPDATE AckOutboxEntity a SET a.claimedUntil = :until WHERE a.id IN :ids")
+    int claim(@Param("ids") List<String> ids, @Param("until") LocalDateTime until);
+}
@@ -2,10 +2,45 @@ package com.example.capstone.background_jobs.repository;
 
 import com.example.capstone.background_jobs.model.RunbookConfigEntity;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+
+import java.time.LocalDateTime;
+import java.util.List;
 
 public interface RunbookConfigRepository extends JpaRepository<RunbookConfigEntity, Long> {
 
-    // Find config by runbookId (the same string foreign key)
-    RunbookConfigEntity findByRunbookId(String runbookId);
-}
+    /**
+     * Where an enabled runbook applies and which version of its config it has; RunbookIndex
+     * reloads when the set of these changes.
+     */
+    interface RunbookVersionRow {
+        Integer getTenantId();
+        String getRunbookId();
+        String getTrigger();
+        LocalDateTime getUpdatedAt();
+    }
+
+    /**
+     * One enabled runbook with its config, as loaded by RunbookIndex.
+     */
+    interface RunbookTriggerRow extends RunbookVersionRow {
+        String getFiltersJson();
+        String getActionsJson();
+    }
 
+    // Every enabled runbook with its config in one round trip. Ordered so the runbook whose
+    // update_finding wins in RunbookMatcher is the same after every reload.
+    @Query("SELECT r.tenantId AS tenantId, r.runbookId AS runbookId, c.trigger AS trigger, "
+            + "c.filtersJson AS filtersJson, c.actionsJson AS actionsJson, c.updatedAt AS updatedAt "
+            + "FROM RunbookEntity r JOIN RunbookConfigEntity c ON c.runbookId = r.runbookId "
+            + "WHERE r.enabled = true ORDER BY r.runbookId")
+    List<RunbookTriggerRow> findEnabledTriggers();
+
+    // The same rows without the JSON. Compared row by row, so enabling, disabling or moving a
+    // runbook shows even when the count and the latest updated_at stay the same
+    @Query("SELECT r.tenantId AS tenantId, r.runbookId AS runbookId, c.trigger AS trigger, "
+            + "c.updatedAt AS updatedAt "
+            + "FROM RunbookEntity r JOIN RunbookConfigEntity c ON c.runbookId = r.runbookId "
+            + "WHERE r.enabled = true")
+    List<RunbookVersionRow> findIndexVersion();
+}
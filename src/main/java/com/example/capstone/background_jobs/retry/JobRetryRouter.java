@@ -0,0 +1,143 @@
+package com.example.capstone.background_jobs.retry;
+
+import com.example.capstone.background_jobs.consumer.JobEventDecoder;
+import com.example.capstone.background_jobs.model.Event;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.clients.producer.ProducerRecord;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.stereotype.Component;
+
+import java.net.ConnectException;
+import java.net.SocketTimeoutException;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Moves failed jobs off the hot path. Transient failures go to the retry topic, whose
+ * listener (JobRetryConsumer) is backed by tiered delayed retry topics; anything else goes
+ * straight to the dead-letter topic, where the job is finally acked as FAILURE.
+ */
+@Component
+public class JobRetryRouter {
+
+    private static final Logger log = LoggerFactory.getLogger(JobRetryRouter.class);
+
+    public static final String EXCEPTION_HEADER = "bgJobException";
+
+    // Exceptions worth another attempt; also the retryOn list of the retry topics
+    public static final List<Class<? extends Throwable>> RETRYABLE_EXCEPTIONS = List.of(
+            TransientJobException.class,
+            ConnectException.class,
+            SocketTimeoutException.class,
+            TimeoutException.class,
+            RejectedExecutionException.class
+    );
+
+    private final KafkaTemplate<String, byte[]> retryKafkaTemplate;
+    private final ObjectMapper objectMapper;
+
+    @Value("${kafka.topics.jfc-bg-job-retry-topic}")
+    private String retryTopic;
+
+    public JobRetryRouter(@Qualifier("retryKafkaTemplate") KafkaTemplate<String, byte[]> retryKafkaTemplate,
+                          ObjectMapper objectMapper) {
+        this.retryKafkaTemplate = retryKafkaTemplate;
+        this.objectMapper = objectMapper;
+    }
+
+    public String getDeadLetterTopic() {
+        return retryTopic + "-dlt";
+    }
+
+    /**
+     * Routes a failed job. If the failure names the events of a group that failed, only those are routed.
+     */
+    public void route(Event<?> event, Throwable failure) {
+        routeGroup(List.of(event), failure);
+    }
+
+    public void routeGroup(List<? extends Event<?>> events, Throwable failure) {
+        Throwable cause = unwrap(failure);
+        if (cause instanceof PartialBatchFailureException partial) {
+            // the same failure can reach several callers (coalesced jobs); each routes only its own events
+            partial.getFailedEvents().stream()
+                    .filter(failed -> events.stream().anyMatch(ev -> ev == failed))
+                    .forEach(ev -> publish(ev, retryTopic, partial.getCause()));
+            return;
+        }
+        String topic = isRetryable(cause) ? retryTopic : getDeadLetterTopic();
+        events.forEach(ev -> publish(ev, topic, cause));
+    }
+
+    /**
+     * A record that could not be decoded will never succeed; park it in the dead-letter topic as-is.
+     */
+    public void routeUndecodable(ConsumerRecord<String, byte[]> record, Throwable failure) {
+        try {
+            ProducerRecord<String, byte[]> out = new ProducerRecord<>(getDeadLetterTopic(), record.key(), record.value());
+            out.headers().add(EXCEPTION_HEADER, describe(failure));
+            send(out);
+            log.warn("Parked undecodable record at offset {} in {}", record.offset(), getDeadLetterTopic());
+        } catch (Exception e) {
+            log.error("Could not park undecodable record at offset {}", record.offset(), e);
+        }
+    }
+
+    public static boolean isRetryable(Throwable failure) {
+        for (Throwable t = failure; t != null; t = t.getCause()) {
+            for (Class<? extends Throwable> type : RETRYABLE_EXCEPTIONS) {
+                if (type.isInstance(t)) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    private void publish(Event<?> event, String topic, Throwable failure) {
+        try {
+            Long tenantId = JobEventDecoder.tenantIdOf(event);
+            ProducerRecord<String, byte[]> out = new ProducerRecord<>(
+                    topic, tenantId == null ? null : tenantId.toString(), objectMapper.writeValueAsBytes(event));
+            out.headers().add(JobEventDecoder.EVENT_TYPE_HEADER, event.getType().name().getBytes(StandardCharsets.UTF_8));
+            out.headers().add(EXCEPTION_HEADER, describe(failure));
+            send(out);
+            log.debug("Routed job {} to {} after {}", event.getEventId(), topic, String.valueOf(failure));
+        } catch (Exception e) {
+            log.error("Could not route job {} to {}", event.getEventId(), topic, e);
+        }
+    }
+
+    private void send(ProducerRecord<String, byte[]> record) {
+        try {
+            // Wait for the broker so the source offset is only committed once the job is parked safely
+            retryKafkaTemplate.send(record).get(10, TimeUnit.SECONDS);
+        } catch (Exception e) {
+            throw new IllegalStateException("Failed to publish to " + record.topic(), e);
+        }
+    }
+
+    private static Throwable unwrap(Throwable failure) {
+        Throwable t = failure;
+        while ((t instanceof CompletionException || t instanceof ExecutionException) && t.getCause() != null) {
+            t = t.getCause();
+        }
+        return t;
+    }
+
+    private static byte[] describe(Throwable failure) {
+        Throwable cause = unwrap(failure);
+        String text = cause == null ? "unknown" : cause.getClass().getName() + ": " + cause.getMessage();
+        return text.getBytes(StandardCharsets.UTF_8);
+    }
+}
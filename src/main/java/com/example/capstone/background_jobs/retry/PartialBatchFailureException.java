@@ -0,0 +1,24 @@
+package com.example.capstone.background_jobs.retry;
+
+import com.example.capstone.background_jobs.model.Event;
+
+import java.util.List;
+
+/**
+ * Thrown by the batch entry points of BackgroundJobService when some events of a group hit a
+ * transient failure. The other events of the group are done (and acked); only the listed ones
+ * should be retried.
+ */
+public class PartialBatchFailureException extends TransientJobException {
+
+    private final List<Event<?>> failedEvents;
+
+    public PartialBatchFailureException(List<? extends Event<?>> failedEvents, Throwable cause) {
+        super(failedEvents.size() + " job(s) failed transiently", cause);
+        this.failedEvents = List.copyOf(failedEvents);
+    }
+
+    public List<Event<?>> getFailedEvents() {
+        return failedEvents;
+    }
+}
@@ -0,0 +1,13 @@
+package com.example.capstone.background_jobs.retry;
+
+/**
+ * A job failed because a downstream system (GitHub, Jira, Elasticsearch) was temporarily
+ * unavailable. Jobs failing with this are sent through the delayed retry topics instead of
+ * being acked as FAILURE.
+ */
+public class TransientJobException extends RuntimeException {
+
+    public TransientJobException(String message, Throwable cause) {
+        super(message, cause);
+    }
+}
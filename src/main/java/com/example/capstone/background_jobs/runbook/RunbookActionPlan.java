@@ -0,0 +1,74 @@
+package com.example.capstone.background_jobs.runbook;
+
+import com.example.capstone.background_jobs.model.AlertState;
+
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * A runbook's actions_json compiled once, e.g.
+ * <pre>
+ *   { "update_finding": { "from": "OPEN", "to": "DISMISS" }, "create_ticket": true }
+ * </pre>
+ *
+ * @param updateFinding null if the runbook doesn't update findings
+ */
+public record RunbookActionPlan(UpdateFinding updateFinding, boolean createTicket) {
+
+    public static final RunbookActionPlan NONE = new RunbookActionPlan(null, false);
+
+    /**
+     * @param from         states the finding must be in (all of them when "from" is blank)
+     * @param githubAction the UPDATE_FINDING newState to send (DISMISS, RESOLVE, FALSE_POSITIVE, OPEN)
+     */
+    public record UpdateFinding(Set<AlertState> from, String githubAction) {
+
+        public boolean appliesTo(AlertState state) {
+            return state != null && from.contains(state);
+        }
+    }
+
+    public boolean isEmpty() {
+        return updateFinding == null && !createTicket;
+    }
+
+    public static RunbookActionPlan compile(Map<String, Object> actions) {
+        if (actions == null || actions.isEmpty()) {
+            return NONE;
+        }
+        UpdateFinding update = null;
+        if (actions.get("update_finding") instanceof Map<?, ?> updateMap) {
+            Object fromState = updateMap.get("from");
+            EnumSet<AlertState> from;
+            if (fromState == null || String.valueOf(fromState).isBlank()) {
+                from = EnumSet.allOf(AlertState.class);
+            } else {
+                from = EnumSet.noneOf(AlertState.class);
+                for (AlertState state : AlertState.values()) {
+                    if (state.name().equalsIgnoreCase(String.valueOf(fromState).trim())) {
+                        from.add(state);
+                    }
+                }
+            }
+            Object toState = updateMap.get("to");
+            update = new UpdateFinding(Collections.unmodifiableSet(from),
+                    githubActionFor(toState == null ? null : String.valueOf(toState)));
+        }
+        boolean createTicket = Boolean.TRUE.equals(actions.get("create_ticket"));
+        return new RunbookActionPlan(update, createTicket);
+    }
+
+    // Example mapping from "DISMISS" => GH "DISMISS"
+    static String githubActionFor(String toState) {
+        if (toState == null) return "OPEN";
+        switch (toState.toUpperCase()) {
+            case "SUPPRESSED": return "DISMISS";
+            case "FALSE_POSITIVE": return "FALSE_POSITIVE";
+            case "DISMISS":  return "DISMISS";
+            case "RESOLVE":  return "RESOLVE";
+            default:         return "OPEN";
+        }
+    }
+}
@@ -0,0 +1,183 @@
+package com.example.capstone.background_jobs.runbook;
+
+import com.example.capstone.background_jobs.model.AlertState;
+import com.example.capstone.background_jobs.model.Findings;
+import com.example.capstone.background_jobs.model.Severity;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * A runbook's filters_json compiled into an immutable predicate. Supported keys (unknown ones
+ * are ignored, names are case-insensitive):
+ * <pre>
+ *   "state":    "OPEN" | ["OPEN", "CONFIRM"] | {"in": [...]}
+ *   "severity": "HIGH" | [...] | {"in": [...]} | {"min": "HIGH"} | {"max": "MEDIUM"}   (CRITICAL is highest)
+ *   "toolType": "DEPENDABOT" | [...] | {"in": [...]}
+ *   "cvss":     7.0 | {"min": 7.0}   (findings without a numeric cvss don't match)
+ * </pre>
+ * A filter naming a value that doesn't exist matches nothing, like the old string compare did.
+ * {@link #matches(Findings)} only reads the finding: no parsing, boxing or copying.
+ */
+public final class RunbookFilter {
+
+    public static final RunbookFilter MATCH_ALL = new RunbookFilter(null, null, null, Double.NaN);
+    static final RunbookFilter MATCH_NONE = new RunbookFilter(EnumSet.noneOf(AlertState.class), null, null, Double.NaN);
+
+    // null = no constraint
+    private final Set<AlertState> states;
+    private final Set<Severity> severities;
+    private final String[] toolTypes;
+    private final double minCvss; // NaN = no threshold
+
+    private RunbookFilter(EnumSet<AlertState> states, EnumSet<Severity> severities, String[] toolTypes, double minCvss) {
+        this.states = states == null ? null : Collections.unmodifiableSet(states);
+        this.severities = severities == null ? null : Collections.unmodifiableSet(severities);
+        this.toolTypes = toolTypes;
+        this.minCvss = minCvss;
+    }
+
+    public boolean matches(Findings finding) {
+        if (states != null && (finding.getState() == null || !states.contains(finding.getState()))) {
+            return false;
+        }
+        if (severities != null && (finding.getSeverity() == null || !severities.contains(finding.getSeverity()))) {
+            return false;
+        }
+        if (toolTypes != null && !matchesTool(finding.getToolType())) {
+            return false;
+        }
+        return Double.isNaN(minCvss) || cvssOf(finding) >= minCvss;
+    }
+
+    // For RunbookMatcher's index and the ES pushdown: null = no constraint
+    public Set<AlertState> states() {
+        return states;
+    }
+
+    public Set<Severity> severities() {
+        return severities;
+    }
+
+    public String[] toolTypes() {
+        return toolTypes;
+    }
+
+    /**
+     * Compiles filters_json (already parsed); an empty map matches everything.
+     */
+    public static RunbookFilter compile(Map<String, Object> filters) {
+        if (filters == null || filters.isEmpty()) {
+            return MATCH_ALL;
+        }
+        try {
+            EnumSet<AlertState> states = null;
+            List<String> stateNames = valuesOf(filters.get("state"));
+            if (stateNames != null) {
+                states = EnumSet.noneOf(AlertState.class);
+                for (String name : stateNames) {
+                    states.add(AlertState.valueOf(name.trim().toUpperCase()));
+                }
+            }
+
+            EnumSet<Severity> severities = severitiesOf(filters.get("severity"));
+
+            String[] toolTypes = null;
+            List<String> tools = valuesOf(filters.get("toolType"));
+            if (tools != null) {
+                toolTypes = tools.stream().map(t -> t.trim().toUpperCase()).toArray(String[]::new);
+            }
+
+            double minCvss = Double.NaN;
+            Object cvss = filters.get("cvss");
+            if (cvss instanceof Map<?, ?> range) {
+                cvss = range.get("min");
+            }
+            if (cvss instanceof Number n) {
+                minCvss = n.doubleValue();
+            } else if (cvss instanceof String s && !s.isBlank()) {
+                minCvss = Double.parseDouble(s.trim());
+            }
+
+            return new RunbookFilter(states, severities, toolTypes, minCvss);
+        } catch (IllegalArgumentException e) {
+            // unknown state/severity name or bad number
+            System.out.println("[Runbook] Filter " + filters + " can never match: " + e.getMessage());
+            return MATCH_NONE;
+        }
+    }
+
+    private boolean matchesTool(String toolType) {
+        if (toolType == null) {
+            return false;
+        }
+        for (String t : toolTypes) {
+            if (t.equalsIgnoreCase(toolType)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static double cvssOf(Findings finding) {
+        String cvss = finding.getCvss();
+        if (cvss == null || cvss.isBlank()) {
+            return Double.NaN; // NaN >= x is false
+        }
+        try {
+            return Double.parseDouble(cvss);
+        } catch (NumberFormatException e) {
+            return Double.NaN;
+        }
+    }
+
+    private static EnumSet<Severity> severitiesOf(Object spec) {
+        if (spec instanceof Map<?, ?> range && (range.containsKey("min") || range.containsKey("max"))) {
+            // ordinal 0 is CRITICAL, so "min" is the highest ordinal allowed
+            int lowest = range.get("min") == null ? Severity.values().length - 1
+                    : Severity.valueOf(String.valueOf(range.get("min")).trim().toUpperCase()).ordinal();
+            int highest = range.get("max") == null ? 0
+                    : Severity.valueOf(String.valueOf(range.get("max")).trim().toUpperCase()).ordinal();
+            EnumSet<Severity> result = EnumSet.noneOf(Severity.class);
+            for (Severity s : Severity.values()) {
+                if (s.ordinal() >= highest && s.ordinal() <= lowest) {
+                    result.add(s);
+                }
+            }
+            return result;
+        }
+        List<String> names = valuesOf(spec);
+        if (names == null) {
+            return null;
+        }
+        EnumSet<Severity> result = EnumSet.noneOf(Severity.class);
+        for (String name : names) {
+            result.add(Severity.valueOf(name.trim().toUpperCase()));
+        }
+        return result;
+    }
+
+    // "X" | ["X", "Y"] | {"in": [...]} => names; null or blank => no constraint
+    private static List<String> valuesOf(Object spec) {
+        if (spec instanceof Map<?, ?> map) {
+            spec = map.get("in");
+        }
+        if (spec instanceof String s) {
+            return s.isBlank() ? null : List.of(s);
+        }
+        if (spec instanceof List<?> list) {
+            List<String> names = new ArrayList<>(list.size());
+            for (Object o : list) {
+                if (o != null) {
+                    names.add(String.valueOf(o));
+                }
+            }
+            return names;
+        }
+        return null;
+    }
+}
@@ -0,0 +1,131 @@
+package com.example.capstone.background_jobs.runbook;
+
+import com.example.capstone.background_jobs.repository.RunbookConfigRepository;
+import com.example.capstone.background_jobs.repository.RunbookConfigRepository.RunbookTriggerRow;
+import com.example.capstone.background_jobs.repository.RunbookConfigRepository.RunbookVersionRow;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+
+/**
+ * Enabled runbooks by (tenant, trigger type), compiled into a {@link RunbookFilter} and a
+ * {@link RunbookActionPlan} and indexed per (tenant, trigger) in a {@link RunbookMatcher}.
+ * Loaded with one join query; a scheduled probe (the same rows without the JSON: which runbooks
+ * are enabled, for which tenant and trigger, at which runbook_config.updated_at) reloads it
+ * when runbooks change, so a NEW_SCAN costs a map lookup instead of 1+N queries.
+ */
+@Component
+public class RunbookIndex {
+
+    /**
+     * A runbook ready to run. Recompiled only when its runbook_config.updated_at changes.
+     */
+    public record CompiledRunbook(String runbookId, LocalDateTime updatedAt,
+                                  RunbookFilter filter, RunbookActionPlan actions) {
+    }
+
+    private record Key(Integer tenantId, String trigger) {
+    }
+
+    private record Version(Integer tenantId, String runbookId, String trigger, LocalDateTime updatedAt) {
+    }
+
+    private record Snapshot(Map<Key, RunbookMatcher> runbooks, Map<String, CompiledRunbook> byId,
+                            Set<Version> version) {
+    }
+
+    private final RunbookConfigRepository runbookConfigRepository;
+    private final ObjectMapper objectMapper;
+
+    private volatile Snapshot snapshot;
+
+    public RunbookIndex(RunbookConfigRepository runbookConfigRepository, ObjectMapper objectMapper) {
+        this.runbookConfigRepository = runbookConfigRepository;
+        this.objectMapper = objectMapper;
+    }
+
+    /**
+     * The tenant's enabled runbooks for a trigger type (like "NEW_SCAN", case-insensitive),
+     * ready to match findings against.
+     */
+    public RunbookMatcher matcherFor(Integer tenantId, String triggerType) {
+        Snapshot current = snapshot;
+        if (current == null) {
+            current = reload();
+        }
+        return current.runbooks().getOrDefault(new Key(tenantId, normalize(triggerType)), RunbookMatcher.EMPTY);
+    }
+
+    @Scheduled(fixedDelayString = "${jobs.runbook-index.refresh-interval-ms:5000}")
+    public void refreshIfChanged() {
+        try {
+            Snapshot current = snapshot;
+            if (current == null) {
+                return; // loaded on first use
+            }
+            if (!versionOf(runbookConfigRepository.findIndexVersion()).equals(current.version())) {
+                reload();
+            }
+        } catch (Exception e) {
+            e.printStackTrace();
+        }
+    }
+
+    private synchronized Snapshot reload() {
+        List<RunbookTriggerRow> rows = runbookConfigRepository.findEnabledTriggers();
+        Map<String, CompiledRunbook> previous = snapshot == null ? Map.of() : snapshot.byId();
+        Map<Key, List<CompiledRunbook>> byTrigger = new HashMap<>();
+        Map<String, CompiledRunbook> byId = new HashMap<>();
+        for (RunbookTriggerRow row : rows) {
+            if (row.getTrigger() == null) continue;
+            CompiledRunbook rb = previous.get(row.getRunbookId());
+            if (rb == null || !Objects.equals(rb.updatedAt(), row.getUpdatedAt())) {
+                rb = new CompiledRunbook(row.getRunbookId(), row.getUpdatedAt(),
+                        RunbookFilter.compile(parseJsonToMap(row.getFiltersJson())),
+                        RunbookActionPlan.compile(parseJsonToMap(row.getActionsJson())));
+            }
+            byId.put(rb.runbookId(), rb);
+            byTrigger.computeIfAbsent(new Key(row.getTenantId(), normalize(row.getTrigger())), k -> new ArrayList<>())
+                    .add(rb);
+        }
+        Map<Key, RunbookMatcher> runbooks = new HashMap<>();
+        byTrigger.forEach((key, list) -> runbooks.put(key, new RunbookMatcher(list)));
+        // versioned by exactly the rows loaded, so a change racing the load shows on the next probe
+        Snapshot loaded = new Snapshot(runbooks, byId, versionOf(rows));
+        snapshot = loaded;
+        return loaded;
+    }
+
+    private static Set<Version> versionOf(List<? extends RunbookVersionRow> rows) {
+        Set<Version> version = new HashSet<>();
+        for (RunbookVersionRow row : rows) {
+            version.add(new Version(row.getTenantId(), row.getRunbookId(), row.getTrigger(), row.getUpdatedAt()));
+        }
+        return version;
+    }
+
+    private static String normalize(String triggerType) {
+        return triggerType == null ? "" : triggerType.trim().toUpperCase();
+    }
+
+    private Map<String, Object> parseJsonToMap(String json) {
+        if (json == null || json.isBlank()) return Collections.emptyMap();
+        try {
+            return objectMapper.readValue(json, new TypeReference<Map<String, Object>>() {});
+        } catch (Exception e) {
+            e.printStackTrace();
+            return Collections.emptyMap();
+        }
+    }
+}
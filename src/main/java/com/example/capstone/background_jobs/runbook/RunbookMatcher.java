@@ -0,0 +1,132 @@
+package com.example.capstone.background_jobs.runbook;
+
+import com.example.capstone.background_jobs.model.AlertState;
+import com.example.capstone.background_jobs.model.Findings;
+import com.example.capstone.background_jobs.model.Severity;
+import com.example.capstone.background_jobs.runbook.RunbookIndex.CompiledRunbook;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * All of a tenant's runbooks for one trigger, indexed by (state, severity, toolType) so a
+ * finding is only checked against the runbooks that can match it. {@link #planFor(Findings)}
+ * merges every matching runbook into one plan: at most one update_finding (the first runbook,
+ * in runbookId order, whose "from" fits the finding) and at most one ticket.
+ */
+public final class RunbookMatcher {
+
+    public static final RunbookMatcher EMPTY = new RunbookMatcher(List.of());
+
+    private record Rule(int order, CompiledRunbook runbook) {
+    }
+
+    // Candidates for one (state, severity): rules for any tool plus rules per tool (upper case)
+    private static final class Bucket {
+        final List<Rule> anyTool = new ArrayList<>();
+        final Map<String, List<Rule>> byTool = new HashMap<>();
+    }
+
+    private static final int STATES = AlertState.values().length + 1;      // last slot: no state
+    private static final int SEVERITIES = Severity.values().length + 1;    // last slot: no severity
+
+    private final List<RunbookFilter> filters = new ArrayList<>();
+    private final boolean createsTickets;
+    private final Bucket[] buckets = new Bucket[STATES * SEVERITIES];
+
+    public RunbookMatcher(List<CompiledRunbook> runbooks) {
+        for (int i = 0; i < buckets.length; i++) {
+            buckets[i] = new Bucket();
+        }
+        boolean tickets = false;
+        for (int order = 0; order < runbooks.size(); order++) {
+            CompiledRunbook rb = runbooks.get(order);
+            if (rb.actions().isEmpty()) continue;
+            Rule rule = new Rule(order, rb);
+            RunbookFilter filter = rb.filter();
+            filters.add(filter);
+            tickets |= rb.actions().createTicket();
+            for (int state = 0; state < STATES; state++) {
+                if (filter.states() != null
+                        && (state == STATES - 1 || !filter.states().contains(AlertState.values()[state]))) {
+                    continue;
+                }
+                for (int severity = 0; severity < SEVERITIES; severity++) {
+                    if (filter.severities() != null
+                            && (severity == SEVERITIES - 1 || !filter.severities().contains(Severity.values()[severity]))) {
+                        continue;
+                    }
+                    Bucket bucket = buckets[state * SEVERITIES + severity];
+                    if (filter.toolTypes() == null) {
+                        bucket.anyTool.add(rule);
+                    } else {
+                        for (String tool : filter.toolTypes()) {
+                            bucket.byTool.computeIfAbsent(tool, t -> new ArrayList<>()).add(rule);
+                        }
+                    }
+                }
+            }
+        }
+        this.createsTickets = tickets;
+    }
+
+    public boolean isEmpty() {
+        return filters.isEmpty();
+    }
+
+    /**
+     * Filters of the runbooks that have something to do; a finding matching none of them is skipped.
+     */
+    public List<RunbookFilter> filters() {
+        return filters;
+    }
+
+    /**
+     * True if any runbook creates tickets, i.e. findings' title and description are needed.
+     */
+    public boolean createsTickets() {
+        return createsTickets;
+    }
+
+    /**
+     * The merged actions of every runbook matching the finding, or null if none does.
+     */
+    public RunbookActionPlan planFor(Findings finding) {
+        AlertState state = finding.getState();
+        Severity severity = finding.getSeverity();
+        Bucket bucket = buckets[(state == null ? STATES - 1 : state.ordinal()) * SEVERITIES
+                + (severity == null ? SEVERITIES - 1 : severity.ordinal())];
+
+        Rule first = null;
+        Rule update = null;
+        boolean ticket = false;
+        int matched = 0;
+        List<Rule> toolRules = finding.getToolType() == null ? List.of()
+                : bucket.byTool.getOrDefault(finding.getToolType().toUpperCase(), List.of());
+        int anyTool = bucket.anyTool.size();
+        for (int i = 0; i < anyTool + toolRules.size(); i++) {
+            Rule rule = i < anyTool ? bucket.anyTool.get(i) : toolRules.get(i - anyTool);
+            // the index settled state/severity/tool; the filter still checks the rest (cvss...)
+            if (!rule.runbook().filter().matches(finding)) continue;
+            RunbookActionPlan plan = rule.runbook().actions();
+            matched++;
+            if (first == null || rule.order() < first.order()) {
+                first = rule;
+            }
+            if (plan.updateFinding() != null && plan.updateFinding().appliesTo(state)
+                    && (update == null || rule.order() < update.order())) {
+                update = rule;
+            }
+            ticket |= plan.createTicket();
+        }
+        if (matched == 0) {
+            return null;
+        }
+        if (matched == 1) {
+            return first.runbook().actions();
+        }
+        return new RunbookActionPlan(update == null ? null : update.runbook().actions().updateFinding(), ticket);
+    }
+}
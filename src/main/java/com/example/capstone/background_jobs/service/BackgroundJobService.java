@@ -4,155 +4,296 @@ import com.example.capstone.background_jobs.dto.CreateTicketRequestEvent;
 import com.example.capstone.background_jobs.dto.NewScanRunbookEvent;
 import com.example.capstone.background_jobs.dto.TransitionTicketRequestEvent;
 import com.example.capstone.background_jobs.dto.UpdateAlertEvent;
+import com.example.capstone.background_jobs.executor.PriorityJobScheduler;
+import com.example.capstone.background_jobs.idempotency.EventIdStore;
+import com.example.capstone.background_jobs.github.AlertUpdateResult;
 import com.example.capstone.background_jobs.github.GithubApiClient;
+import com.example.capstone.background_jobs.jira.JiraClient;
 import com.example.capstone.background_jobs.model.*;
 import com.example.capstone.background_jobs.producer.AcknowledgementProducer;
-import com.example.capstone.background_jobs.repository.RunbookConfigRepository;
-import com.example.capstone.background_jobs.repository.RunbookRepository;
-import com.example.capstone.background_jobs.repository.TenantRepository;
+import com.example.capstone.background_jobs.repository.AckOutboxRepository;
 import com.example.capstone.background_jobs.repository.TenantTicketRepository;
-import com.fasterxml.jackson.core.type.TypeReference;
-import com.fasterxml.jackson.databind.ObjectMapper;
-import org.apache.commons.codec.binary.Base64;
-import org.springframework.http.*;
+import com.example.capstone.background_jobs.retry.JobRetryRouter;
+import com.example.capstone.background_jobs.retry.PartialBatchFailureException;
+import com.example.capstone.background_jobs.retry.TransientJobException;
+import com.example.capstone.background_jobs.runbook.RunbookActionPlan;
+import com.example.capstone.background_jobs.runbook.RunbookIndex;
+import com.example.capstone.background_jobs.runbook.RunbookMatcher;
+import com.example.capstone.background_jobs.tenant.TenantContextCache;
 import org.springframework.stereotype.Service;
-import org.springframework.web.client.RestTemplate;
+import org.springframework.transaction.support.TransactionTemplate;
 
+import java.io.IOException;
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
 
 @Service
 public class BackgroundJobService {
 
-    private final TenantRepository tenantRepository;
+    private final TenantContextCache tenantContexts;
     private final GithubApiClient githubApiClient;
     private final ElasticsearchClientService esClientService;
     private final AcknowledgementProducer ackProducer;
     private final TenantTicketRepository tenantTicketRepository;
-    private final RunbookRepository runbookRepository;
-    private final RunbookConfigRepository runbookConfigRepository;
-
-    public BackgroundJobService(TenantRepository tenantRepository,
+    private final RunbookIndex runbookIndex;
+    private final PriorityJobScheduler runbookActionScheduler;
+    private final AckOutboxRepository ackOutboxRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final JiraClient jiraClient;
+    private final JobRetryRouter retryRouter;
+    private final EventIdStore eventIdStore;
+
+    // Mapped states that close out a finding, so its Jira ticket should follow
+    private static final Set<AlertStateBg> DONE_STATES = EnumSet.of(
+            AlertStateBg.FALSE_POSITIVE, AlertStateBg.SUPPRESSED, AlertStateBg.FIXED, AlertStateBg.CONFIRM);
+
+    public BackgroundJobService(TenantContextCache tenantContexts,
                                 GithubApiClient githubApiClient,
                                 ElasticsearchClientService esClientService,
                                 AcknowledgementProducer ackProducer,
                                 TenantTicketRepository tenantTicketRepository,
-                                RunbookRepository runbookRepository,
-                                RunbookConfigRepository runbookConfigRepository) {
-        this.tenantRepository = tenantRepository;
+                                RunbookIndex runbookIndex,
+                                PriorityJobScheduler runbookActionScheduler,
+                                AckOutboxRepository ackOutboxRepository,
+                                TransactionTemplate transactionTemplate,
+                                JiraClient jiraClient,
+                                JobRetryRouter retryRouter,
+                                EventIdStore eventIdStore) {
+        this.tenantContexts = tenantContexts;
         this.githubApiClient = githubApiClient;
         this.esClientService = esClientService;
         this.ackProducer = ackProducer;
         this.tenantTicketRepository = tenantTicketRepository;
-        this.runbookRepository = runbookRepository;
-        this.runbookConfigRepository = runbookConfigRepository;
+        this.runbookIndex = runbookIndex;
+        this.runbookActionScheduler = runbookActionScheduler;
+        this.ackOutboxRepository = ackOutboxRepository;
+        this.transactionTemplate = transactionTemplate;
+        this.jiraClient = jiraClient;
+        this.retryRouter = retryRouter;
+        this.eventIdStore = eventIdStore;
     }
 
     public void handleUpdateFinding(UpdateAlertEvent event) {
-        String jobId = event.getEventId();
-        UpdateEvent payload = event.getPayload();
+        handleUpdateFinding(event, List.of());
+    }
 
+    /**
+     * Applies {@code event} on behalf of itself and the older jobs for the same alert it
+     * superseded (see UpdateCoalescer); they all get the same ack.
+     */
+    public void handleUpdateFinding(UpdateAlertEvent event, List<UpdateAlertEvent> superseded) {
+        Map<UpdateAlertEvent, List<UpdateAlertEvent>> supersededBy = new IdentityHashMap<>();
+        supersededBy.put(event, superseded);
         try {
-            Long tenantId = Long.valueOf(payload.getTenantId());
-            TenantEntity tenant = tenantRepository.findById(tenantId)
-                    .orElseThrow(() -> new IllegalStateException("No tenant found for id=" + tenantId));
-
-            // toolType is a string. Compare uppercase or switch statement
-            String toolType = payload.getToolType().toUpperCase();
-
-            String mappedDismissReason = mapDismissReason(toolType, payload.getReason(), payload.getNewState());
-
-            boolean success;
-            switch (toolType) {
-                case "CODE_SCANNING":
-                    success = githubApiClient.updateCodeScanningAlertState(
-                            tenant.getPersonalAccessToken(),
-                            tenant.getOwner(),
-                            tenant.getRepo(),
-                            String.valueOf(payload.getAlertNumber()),
-                            payload.getNewState(),
-                            mappedDismissReason
-                    );
-                    break;
-                case "DEPENDABOT":
-                    success = githubApiClient.updateDependabotAlertState(
-                            tenant.getPersonalAccessToken(),
-                            tenant.getOwner(),
-                            tenant.getRepo(),
-                            String.valueOf(payload.getAlertNumber()),
-                            payload.getNewState(),
-                            mappedDismissReason
-                    );
-                    break;
-                case "SECRET_SCANNING":
-                    success = githubApiClient.updateSecretScanningAlertState(
-                            tenant.getPersonalAccessToken(),
-                            tenant.getOwner(),
-                            tenant.getRepo(),
-                            String.valueOf(payload.getAlertNumber()),
-                            payload.getNewState(),
-                            mappedDismissReason
-                    );
-                    break;
-                default:
-                    success = false;
-                    System.out.println("[background-jobs] Unknown toolType => " + toolType);
-            }
+            Long tenantId = Long.valueOf(event.getPayload().getTenantId());
+            handleUpdateFindingBatch(tenantId, List.of(event), supersededBy);
+        } catch (PartialBatchFailureException e) {
+            // transient => the retry topics own this job now, no ack yet
+            throw e;
+        } catch (Exception e) {
+            e.printStackTrace();
+            ackUpdate(event, false, supersededBy);
+        }
+    }
 
-            // If success => update ES
-            if (success) {
-                String rawState = payload.getNewState();
-//                String dismissReason = payload.getReason();   // e.g. "false_positive"
+    public void handleUpdateFindingBatch(Long tenantId, List<UpdateAlertEvent> events) {
+        handleUpdateFindingBatch(tenantId, events, Map.of());
+    }
 
-                AlertStateBg mappedState = AlertStateBg.fromRaw(rawState, toolType, mappedDismissReason);
+    /**
+     * Batch entry point for UPDATE_FINDING jobs that all belong to {@code tenantId}.
+     * The tenant is resolved once, GitHub is still patched per alert, and the ES side is
+     * collapsed into one update_by_query per target state, using each alert's last update in the
+     * batch. Every job gets its own ack (shared with the jobs it superseded), except jobs that hit
+     * a transient failure: those are reported in a {@link PartialBatchFailureException}.
+     */
+    public void handleUpdateFindingBatch(Long tenantId, List<UpdateAlertEvent> events,
+                                         Map<UpdateAlertEvent, List<UpdateAlertEvent>> supersededBy) {
+        TenantEntity tenant;
+        try {
+            tenant = findTenantById(tenantId);
+        } catch (Exception e) {
+            e.printStackTrace();
+            events.forEach(ev -> ackUpdate(ev, false, supersededBy));
+            return;
+        }
+
+        List<UpdateAlertEvent> transientFailures = new ArrayList<>();
+        Exception lastTransient = null;
 
-                esClientService.updateFindingInEs(
+        // 1) PATCH each alert on GitHub in event order. An alert can come up more than once in a
+        //    batch: ES only gets the state of its last successful update, like GitHub did.
+        Map<Long, AlertStateBg> finalStateByAlert = new LinkedHashMap<>();
+        Map<Long, List<UpdateAlertEvent>> updatedByAlert = new HashMap<>();
+        for (UpdateAlertEvent event : events) {
+            try {
+                UpdateEvent payload = event.getPayload();
+
+                // toolType is a string. Compare uppercase or switch statement
+                String toolType = payload.getToolType().toUpperCase();
+                String mappedDismissReason = mapDismissReason(toolType, payload.getReason(), payload.getNewState());
+
+                AlertUpdateResult result = updateGithubAlert(tenant, payload, toolType, mappedDismissReason);
+                if (result == AlertUpdateResult.UPDATED) {
+                    AlertStateBg mappedState = AlertStateBg.fromRaw(payload.getNewState(), toolType, mappedDismissReason);
+                    // re-insert so the alert sits at its last occurrence
+                    finalStateByAlert.remove(payload.getAlertNumber());
+                    finalStateByAlert.put(payload.getAlertNumber(), mappedState);
+                    updatedByAlert.computeIfAbsent(payload.getAlertNumber(), n -> new ArrayList<>()).add(event);
+                } else if (result == AlertUpdateResult.UNCHANGED) {
+                    // GitHub already had this state => so does ES (and the linked ticket), nothing to write
+                    ackUpdate(event, true, supersededBy);
+                } else {
+                    ackUpdate(event, false, supersededBy);
+                }
+            } catch (Exception e) {
+                e.printStackTrace();
+                if (JobRetryRouter.isRetryable(e)) {
+                    addTransient(transientFailures, event, supersededBy);
+                    lastTransient = e;
+                } else {
+                    ackUpdate(event, false, supersededBy);
+                }
+            }
+        }
+
+        Map<AlertStateBg, List<Long>> alertsByState = new LinkedHashMap<>();
+        finalStateByAlert.forEach((alertNumber, state) ->
+                alertsByState.computeIfAbsent(state, st -> new ArrayList<>()).add(alertNumber));
+
+        // 2) One ES write per target state, then the linked ticket transition and the acks per alert
+        for (Map.Entry<AlertStateBg, List<Long>> entry : alertsByState.entrySet()) {
+            AlertStateBg mappedState = entry.getKey();
+            List<Long> alertNumbers = entry.getValue();
+            try {
+                esClientService.updateFindingsInEs(
                         tenant.getEsIndex(),
-                        payload.getAlertNumber(),
+                        alertNumbers,
                         mappedState.name()  // e.g. "SUPPRESSED" or "FALSE_POSITIVE"
                 );
-
-                List<String> doneStates = Arrays.asList("FALSE_POSITIVE", "SUPPRESSED", "FIXED", "CONFIRM");
-                if (doneStates.contains(mappedState.name())) {
-                    // First, find the doc’s ID in ES so we know which row in tenant_ticket to use
-                    Optional<String> findingIdOpt = esClientService.findFindingIdByAlertNumber(
-                            tenant.getEsIndex(), payload.getAlertNumber(), toolType
-                    );
-
-                    if (findingIdOpt.isPresent()) {
-                        String findingId = findingIdOpt.get();
-                        Optional<TenantTicketEntity> tteOpt = tenantTicketRepository.findByFindingId(findingId);
-                        if (tteOpt.isPresent()) {
-                            TenantTicketEntity tte = tteOpt.get();
-
-                            // Now build the event and call handleTransitionTicket
-                            TransitionTicketRequestPayload ttPayload = new TransitionTicketRequestPayload();
-                            ttPayload.setTicketId(tte.getTicketId());
-                            ttPayload.setTenantId(tte.getTenantId().longValue());
-
-                            TransitionTicketRequestEvent transitionEvent = new TransitionTicketRequestEvent(
-                                    ttPayload,
-                                    "transition_" + UUID.randomUUID(), // eventId
-                                    "someDestinationTopic"             // optional
-                            );
-
-                            // Then do the transition
-                            handleTransitionTicket(transitionEvent);
+            } catch (Exception e) {
+                e.printStackTrace();
+                boolean retryable = JobRetryRouter.isRetryable(e);
+                if (retryable) {
+                    lastTransient = e;
+                }
+                for (Long alertNumber : alertNumbers) {
+                    for (UpdateAlertEvent ev : updatedByAlert.get(alertNumber)) {
+                        if (retryable) {
+                            addTransient(transientFailures, ev, supersededBy);
                         } else {
-                            System.out.println("No tenant_ticket row found for findingId=" + findingId);
+                            ackUpdate(ev, false, supersededBy);
                         }
                     }
                 }
+                continue;
             }
 
-            // Acknowledge
-            ackProducer.sendUpdateAck(jobId, success);
+            for (Long alertNumber : alertNumbers) {
+                List<UpdateAlertEvent> alertEvents = updatedByAlert.get(alertNumber);
+                try {
+                    if (DONE_STATES.contains(mappedState)) {
+                        UpdateEvent payload = alertEvents.get(alertEvents.size() - 1).getPayload();
+                        transitionLinkedTicket(tenant, alertNumber, payload.getToolType().toUpperCase());
+                    }
+                    alertEvents.forEach(ev -> ackUpdate(ev, true, supersededBy));
+                } catch (Exception e) {
+                    e.printStackTrace();
+                    if (JobRetryRouter.isRetryable(e)) {
+                        alertEvents.forEach(ev -> addTransient(transientFailures, ev, supersededBy));
+                        lastTransient = e;
+                    } else {
+                        alertEvents.forEach(ev -> ackUpdate(ev, false, supersededBy));
+                    }
+                }
+            }
+        }
 
-        } catch (Exception e) {
-            e.printStackTrace();
-            ackProducer.sendUpdateAck(jobId, false);
+        if (!transientFailures.isEmpty()) {
+            throw new PartialBatchFailureException(transientFailures, lastTransient);
         }
     }
 
+    private void ackUpdate(UpdateAlertEvent event, boolean success,
+                           Map<UpdateAlertEvent, List<UpdateAlertEvent>> supersededBy) {
+        for (UpdateAlertEvent older : supersededBy.getOrDefault(event, List.of())) {
+            ackProducer.sendUpdateAck(older.getEventId(), success);
+        }
+        ackProducer.sendUpdateAck(event.getEventId(), success);
+    }
+
+    // Superseded jobs go first: replayed in order from the retry topic they coalesce into event again
+    private static void addTransient(List<UpdateAlertEvent> failures, UpdateAlertEvent event,
+                                     Map<UpdateAlertEvent, List<UpdateAlertEvent>> supersededBy) {
+        failures.addAll(supersededBy.getOrDefault(event, List.of()));
+        failures.add(event);
+    }
+
+    private AlertUpdateResult updateGithubAlert(TenantEntity tenant, UpdateEvent payload, String toolType, String mappedDismissReason) {
+        switch (toolType) {
+            case "CODE_SCANNING":
+                return githubApiClient.updateCodeScanningAlertState(
+                        tenant,
+                        String.valueOf(payload.getAlertNumber()),
+                        payload.getNewState(),
+                        mappedDismissReason
+                );
+            case "DEPENDABOT":
+                return githubApiClient.updateDependabotAlertState(
+                        tenant,
+                        String.valueOf(payload.getAlertNumber()),
+                        payload.getNewState(),
+                        mappedDismissReason
+                );
+            case "SECRET_SCANNING":
+                return githubApiClient.updateSecretScanningAlertState(
+                        tenant,
+                        String.valueOf(payload.getAlertNumber()),
+                        payload.getNewState(),
+                        mappedDismissReason
+                );
+            default:
+                System.out.println("[background-jobs] Unknown toolType => " + toolType);
+                return AlertUpdateResult.FAILED;
+        }
+    }
+
+    /**
+     * If the finding behind this alert has a Jira ticket, move that ticket to its final state.
+     */
+    private void transitionLinkedTicket(TenantEntity tenant, long alertNumber, String toolType) throws IOException {
+        // First, find the doc’s ID in ES so we know which row in tenant_ticket to use
+        Optional<String> findingIdOpt = esClientService.findFindingIdByAlertNumber(
+                tenant.getEsIndex(), alertNumber, toolType
+        );
+        if (findingIdOpt.isEmpty()) {
+            return;
+        }
+
+        String findingId = findingIdOpt.get();
+        Optional<TenantTicketEntity> tteOpt = tenantTicketRepository.findByFindingId(findingId);
+        if (tteOpt.isEmpty()) {
+            System.out.println("No tenant_ticket row found for findingId=" + findingId);
+            return;
+        }
+        TenantTicketEntity tte = tteOpt.get();
+
+        // Now build the event and call handleTransitionTicket
+        TransitionTicketRequestPayload ttPayload = new TransitionTicketRequestPayload();
+        ttPayload.setTicketId(tte.getTicketId());
+        ttPayload.setTenantId(tte.getTenantId().longValue());
+
+        TransitionTicketRequestEvent transitionEvent = new TransitionTicketRequestEvent(
+                ttPayload,
+                "transition_" + UUID.randomUUID(), // eventId
+                "someDestinationTopic"             // optional
+        );
+
+        // Then do the transition
+        transitionTicket(tenant, transitionEvent);
+    }
+
     private String mapDismissReason(String toolType, String requestedReason, String newState) {
         if (newState == null) return null;
 
@@ -207,77 +348,67 @@ public class BackgroundJobService {
     }
 
     public String handleCreateTicket(CreateTicketRequestEvent event) {
+        Long tenantId = Long.valueOf(event.getPayload().getTenantId());
+        return createTicket(findTenantById(tenantId), event);
+    }
+
+    /**
+     * Batch entry point for CREATE_TICKET jobs of one tenant. A failing job does not stop the rest;
+     * transient failures are reported together in a {@link PartialBatchFailureException}.
+     */
+    public void handleCreateTicketBatch(Long tenantId, List<CreateTicketRequestEvent> events) {
+        TenantEntity tenant = findTenantById(tenantId);
+        List<CreateTicketRequestEvent> transientFailures = new ArrayList<>();
+        Exception lastTransient = null;
+        for (CreateTicketRequestEvent event : events) {
+            try {
+                createTicket(tenant, event);
+            } catch (Exception e) {
+                e.printStackTrace();
+                if (JobRetryRouter.isRetryable(e)) {
+                    transientFailures.add(event);
+                    lastTransient = e;
+                } else {
+                    ackProducer.sendUpdateAck(event.getEventId(), false);
+                }
+            }
+        }
+        if (!transientFailures.isEmpty()) {
+            throw new PartialBatchFailureException(transientFailures, lastTransient);
+        }
+    }
+
+    private String createTicket(TenantEntity tenant, CreateTicketRequestEvent event) {
 
         String jobId = event.getEventId();
 
         CreateTicketRequestPayload payload = event.getPayload();
 
-        Long tenantId = Long.valueOf(payload.getTenantId());
+        Long tenantId = tenant.getId();
         String findingId = payload.getFindingId();
         String summary = payload.getSummary();
         String description = payload.getDescription();
 
-        TenantEntity tenant = findTenantById(tenantId);
-
-        // 2. Construct the Jira REST API URL
-        // projectName typically something like "ishaanchadha.atlassian.net"
-        String jiraUrl = "https://" + tenant.getProjectName() + "/rest/api/2/issue";
-
-        // 3. Build the request body
-        Map<String, Object> fields = new HashMap<>();
-        Map<String, String> projectMap = new HashMap<>();
-        projectMap.put("key", tenant.getProjectKey());
-
-        Map<String, String> issueTypeMap = new HashMap<>();
-        issueTypeMap.put("name", "Bug");
-
-        fields.put("project", projectMap);
-        fields.put("summary", summary);
-        fields.put("description", description);
-        fields.put("issuetype", issueTypeMap);
-
-        Map<String, Object> requestBody = new HashMap<>();
-        requestBody.put("fields", fields);
-
-        // 4. Make the POST request
-        RestTemplate restTemplate = new RestTemplate();
-        HttpHeaders headers = getAuthHeaders(tenant.getUsername(), tenant.getApiToken());
-        headers.setContentType(MediaType.APPLICATION_JSON);
-
-        HttpEntity<Map<String, Object>> entity = new HttpEntity<>(requestBody, headers);
-
-        ResponseEntity<Map> response =
-                restTemplate.exchange(jiraUrl, HttpMethod.POST, entity, Map.class);
-
-        // 5. Extract Jira ticket ID from the response
-        // The JSON typically has "id" (internal numeric ID), "key" (Jira ticket key like CAP-123)
-        // If you want the human-readable “key” (like “CAP-10”), parse that from "key".
-        Map<String, Object> responseBody = response.getBody();
-        if (responseBody == null) {
-            throw new IllegalStateException("Jira create issue response was empty");
-        }
-
-        // You can store either the "id" or "key". Typically, "key" is more human-friendly.
-        // For consistency, let's store the "id". Adjust as desired.
-        Object ticketKeyObj = responseBody.get("key");
-        if (ticketKeyObj == null) {
-            throw new IllegalStateException("No 'id' returned from Jira create issue response");
-        }
-        String ticketKey = ticketKeyObj.toString();
+        // 2.-5. Create the issue in the tenant's Jira project and get its key (like "CAP-10")
+        String ticketKey = jiraClient.createIssue(tenant, summary, description);
 
         // 6. Update the ES doc (the Findings record) with the new ticketId
         //    Make sure the "findingId" param is the actual ES document _id or that you have it mapped.
         esClientService.updateFindingTicketId(tenantId, findingId, ticketKey);
 
-        // 7. Insert a record in tenant_ticket table
+        // 7. Insert a record in tenant_ticket table, and the ack in the outbox in the same transaction
+        //    (AckOutboxRelay publishes it), so a crash can't keep the ticket but lose the ack
         TenantTicketEntity tenantTicketEntity = new TenantTicketEntity(
                 tenantId.intValue(),  // or cast to int carefully
                 ticketKey,
                 findingId
         );
-        tenantTicketRepository.save(tenantTicketEntity);
-
-        ackProducer.sendUpdateAck(jobId, true);
+        transactionTemplate.executeWithoutResult(status -> {
+            tenantTicketRepository.save(tenantTicketEntity);
+            ackOutboxRepository.save(new AckOutboxEntity(jobId, AcknowledgementStatus.SUCCESS));
+        });
+        // The ack is committed; don't open a second ticket if the job is redelivered before the relay runs
+        eventIdStore.record(jobId);
 
         return ticketKey;
     }
@@ -285,85 +416,75 @@ public class BackgroundJobService {
 
 
     private TenantEntity findTenantById(Long tenantId) {
-        return tenantRepository.findById(tenantId)
-                .orElseThrow(() -> new IllegalStateException("Tenant not found with ID=" + tenantId));
+        return tenantContexts.getTenant(tenantId);
     }
 
-    private HttpHeaders getAuthHeaders(String username, String apiToken) {
-        HttpHeaders headers = new HttpHeaders();
-        String auth = username + ":" + apiToken;
-        byte[] encodedAuth = Base64.encodeBase64(auth.getBytes());
-        String authHeader = "Basic " + new String(encodedAuth);
-        headers.set("Authorization", authHeader);
-        return headers;
+    public void handleTransitionTicket(TransitionTicketRequestEvent event) {
+        Long tenantId = Long.valueOf(event.getPayload().getTenantId());
+        transitionTicket(findTenantById(tenantId), event);
     }
 
-    public void handleTransitionTicket(TransitionTicketRequestEvent event) {
+    /**
+     * Batch entry point for TRANSITION_TICKET jobs of one tenant. A failing job does not stop the rest;
+     * transient failures are reported together in a {@link PartialBatchFailureException}.
+     */
+    public void handleTransitionTicketBatch(Long tenantId, List<TransitionTicketRequestEvent> events) {
+        TenantEntity tenant = findTenantById(tenantId);
+        List<TransitionTicketRequestEvent> transientFailures = new ArrayList<>();
+        Exception lastTransient = null;
+        for (TransitionTicketRequestEvent event : events) {
+            try {
+                transitionTicket(tenant, event);
+            } catch (Exception e) {
+                e.printStackTrace();
+                if (JobRetryRouter.isRetryable(e)) {
+                    transientFailures.add(event);
+                    lastTransient = e;
+                } else {
+                    ackProducer.sendUpdateAck(event.getEventId(), false);
+                }
+            }
+        }
+        if (!transientFailures.isEmpty()) {
+            throw new PartialBatchFailureException(transientFailures, lastTransient);
+        }
+    }
+
+    private void transitionTicket(TenantEntity tenant, TransitionTicketRequestEvent event) {
 
         String jobId = event.getEventId();
 
         TransitionTicketRequestPayload payload = event.getPayload();
 
-        Long tenantId = Long.valueOf(payload.getTenantId());
         String ticketKey = payload.getTicketId();
 
-        TenantEntity tenant = findTenantById(tenantId);
-
-        // Build the transitions URL for the current ticket
-        String transitionsUrl = "https://" + tenant.getProjectName()
-                + "/rest/api/2/issue/" + ticketKey
-                + "/transitions?expand=transitions.fields";
+        // Move it to a done status along the cached (or freshly learned) workflow path
+        jiraClient.transitionToFinal(tenant, ticketKey);
 
-        // Create a RestTemplate
-        RestTemplate restTemplate = new RestTemplate();
-        HttpHeaders headers = getAuthHeaders(tenant.getUsername(), tenant.getApiToken());
-        HttpEntity<Void> entity = new HttpEntity<>(headers);
+        ackProducer.sendUpdateAck(jobId, true);
 
-        while (true) {
-            // 1. Fetch the current transitions
-            ResponseEntity<Map> response = restTemplate.exchange(
-                    transitionsUrl, HttpMethod.GET, entity, Map.class
-            );
-            Map<String, Object> responseBody = response.getBody();
-            if (responseBody == null) {
-                // No transitions info => break out
-                System.out.println("No transitions body returned for ticket=" + ticketKey);
-                break;
-            }
+        System.out.println("Finished attempting to transition ticket " + ticketKey + " to Done.");
+    }
 
-            // 2. Parse the transitions array
-            List<Map<String, Object>> transitions = (List<Map<String, Object>>) responseBody.get("transitions");
-            if (transitions == null || transitions.isEmpty()) {
-                // No transitions => presumably at final state (like "Done")
-                System.out.println("No more transitions available. Ticket " + ticketKey + " is likely at final state.");
-                break;
+    /**
+     * Batch entry point for NEW_SCAN jobs of one tenant. Each scan is still acked on its own;
+     * scans that hit a transient failure are reported together in a
+     * {@link PartialBatchFailureException}.
+     */
+    public void handleNewScanBatch(Long tenantId, List<NewScanRunbookEvent> events) {
+        List<NewScanRunbookEvent> transientFailures = new ArrayList<>();
+        Exception lastTransient = null;
+        for (NewScanRunbookEvent event : events) {
+            try {
+                handleNewScan(event);
+            } catch (PartialBatchFailureException e) {
+                transientFailures.add(event);
+                lastTransient = e;
             }
-
-            // 3. Pick the first transition from the list
-            Map<String, Object> firstTransition = transitions.get(0);
-            String transitionId = (String) firstTransition.get("id");
-            String transitionName = (String) firstTransition.get("name");
-            System.out.println("Applying transition: " + transitionName + " (ID=" + transitionId + ") for ticket=" + ticketKey);
-
-            // 4. POST that transition to move to the next state
-            String doTransitionUrl = "https://" + tenant.getProjectName()
-                    + "/rest/api/2/issue/" + ticketKey + "/transitions";
-
-            Map<String, Object> transitionBody = new HashMap<>();
-            Map<String, String> transitionObj = new HashMap<>();
-            transitionObj.put("id", transitionId);
-            transitionBody.put("transition", transitionObj);
-
-            HttpEntity<Map<String, Object>> transitionEntity = new HttpEntity<>(transitionBody, headers);
-            restTemplate.exchange(doTransitionUrl, HttpMethod.POST, transitionEntity, String.class);
-
-            // 5. Now the ticket is in the new state. Loop again to see if there's another transition
-            //    until eventually no transitions remain or we reach "Done".
         }
-
-        ackProducer.sendUpdateAck(jobId, true);
-
-        System.out.println("Finished attempting to transition ticket " + ticketKey + " to Done.");
+        if (!transientFailures.isEmpty()) {
+            throw new PartialBatchFailureException(transientFailures, lastTransient);
+        }
     }
 
     public void handleNewScan(NewScanRunbookEvent event) {
@@ -373,77 +494,57 @@ public class BackgroundJobService {
 
         System.out.println("Size of list of findings in handleNewScan: " + payload.getNewFindingIds().size());
 
-        boolean success = false;
         try {
-            // 1) Load all runbooks for this tenant
-            List<RunbookEntity> runbooks = runbookRepository.findByTenantId(tenantId.intValue());
-
-            // 2) For each runbook, check if it's enabled and if runbook_config.trigger_type = "NEW_SCAN"
-            for (RunbookEntity rb : runbooks) {
-                if (!rb.isEnabled()) continue;
-
-                RunbookConfigEntity config = runbookConfigRepository.findByRunbookId(rb.getRunbookId());
-                if (config == null) continue;
-
-                String triggerType = config.getTrigger(); // a VARCHAR(50)
-                if (!"NEW_SCAN".equalsIgnoreCase(triggerType)) {
-                    continue;
-                }
-
-                // 3) Filter the findings based on filters_json
-                //    We'll parse config.getFiltersJson() to see if there's a "state" or "severity"
-                Map<String, Object> filters = parseJsonToMap(config.getFiltersJson());
-
-                // We'll fetch the actual findings from ES so we can check their state/severity
-                List<String> newFindingIds = payload.getNewFindingIds();
-                System.out.println("Size of newFindingIds: " + newFindingIds.size());
-                List<Findings> newFindings = esClientService.fetchFindingsByIds(tenantId, newFindingIds);
-                System.out.println("Size of newFindings: " + newFindings.size());
-
-                for (Findings finding : newFindings) {
-                    if (matchesFilter(finding, filters)) {
-                        // 4) Apply actions
-                        Map<String, Object> actions = parseJsonToMap(config.getActionsJson());
-                        applyActions(actions, finding, tenantId);
-                    }
-                }
+            // 1)+2) The tenant's enabled NEW_SCAN runbooks, from the in-memory index (no SQL per scan)
+            RunbookMatcher matcher = runbookIndex.matcherFor(tenantId.intValue(), "NEW_SCAN");
+            if (!matcher.isEmpty()) {
+                // 3) Stream the scan's findings from ES in chunks, once whatever the number of runbooks;
+                //    ES already drops those no runbook can match and leaves out fields the actions don't read
+                esClientService.streamMatchingFindings(tenantId, payload.getNewFindingIds(), matcher,
+                        chunk -> applyRunbooks(chunk, matcher, tenantId));
             }
-            success = true;
         } catch (Exception e) {
             e.printStackTrace();
-        } finally {
-            // Possibly acknowledge the NEW_SCAN job
-            ackProducer.sendUpdateAck(jobId, success);
+            if (JobRetryRouter.isRetryable(e)) {
+                // transient => the retry topics own this job now, no ack yet. Running it again
+                // skips the findings that already got their ticket.
+                throw new PartialBatchFailureException(List.of(event), e);
+            }
+            ackProducer.sendUpdateAck(jobId, false);
+            return;
         }
+        ackProducer.sendUpdateAck(jobId, true);
     }
 
     /**
-     * Return true if the given finding matches the filter criteria
-     * E.g. filters might have: { "state": "OPEN", "severity": "HIGH" }
+     * Runs the runbook actions for one chunk of a scan's findings and waits for them, then
+     * creates the chunk's tickets, so a scan only ever holds a few chunks in memory.
      */
-    private boolean matchesFilter(Findings finding, Map<String, Object> filters) {
-        if (filters == null || filters.isEmpty()) {
-            // no filter => match everything
-            return true;
-        }
-        // If filter has a "state" => must match
-        String desiredState = (String) filters.get("state");
-        if (desiredState != null && !desiredState.isBlank()) {
-            // e.g. "OPEN", "DISMISSED", "FIXED"
-            // compare with finding.getState().name() or something
-            if (!desiredState.equalsIgnoreCase(finding.getState().name())) {
-                return false;
+    private void applyRunbooks(List<Findings> findings, RunbookMatcher matcher, Long tenantId) {
+        List<CompletableFuture<Void>> scheduled = new ArrayList<>();
+        // findings the runbooks want a ticket for, created in bulk once the actions are done
+        Map<String, Findings> ticketFindings = new ConcurrentHashMap<>();
+        try {
+            for (Findings finding : findings) {
+                // One merged plan per finding: a finding matched by several runbooks still
+                // gets at most one GitHub update and one ticket
+                RunbookActionPlan actions = matcher.planFor(finding);
+                if (actions == null) continue;
+                // 4) Apply actions, most important findings first (across all running scans)
+                scheduled.add(runbookActionScheduler.submit(finding.getSeverity(), finding.getToolType(),
+                        () -> applyActions(actions, finding, tenantId, ticketFindings)));
             }
-        }
-        // If filter has a "severity"
-        String desiredSeverity = (String) filters.get("severity");
-        if (desiredSeverity != null && !desiredSeverity.isBlank()) {
-            // e.g. "HIGH", "LOW"
-            if (!desiredSeverity.equalsIgnoreCase(finding.getSeverity().name())) {
-                return false;
+            // 5) The chunk is done once all of its actions ran and its tickets exist
+            CompletableFuture.allOf(scheduled.toArray(new CompletableFuture[0])).get();
+        } catch (Exception e) {
+            // e.g. the lane timed out: drop the actions that haven't started yet
+            scheduled.forEach(f -> f.cancel(false));
+            if (e instanceof InterruptedException) {
+                Thread.currentThread().interrupt();
             }
+            throw new IllegalStateException("Runbook actions failed for a chunk of " + findings.size() + " findings", e);
         }
-        return true;
+        createTicketsInBulk(tenantId, ticketFindings.values());
     }
 
     /**
@@ -453,99 +554,107 @@ public class BackgroundJobService {
      *     "create_ticket": true
      *  }
      */
-    private void applyActions(Map<String, Object> actions, Findings finding, Long tenantId) {
-        if (actions == null || actions.isEmpty()) return;
-
-        // 1) Check "update_finding"
-        Object updateObj = actions.get("update_finding");
-        if (updateObj instanceof Map) {
-            Map<String, String> updateMap = (Map<String, String>) updateObj;
-            String fromState = updateMap.get("from");
-            String toState   = updateMap.get("to");
-            // If finding is currently fromState, or if fromState is blank => proceed
-            if (fromState == null || fromState.isBlank() ||
-                    fromState.equalsIgnoreCase(finding.getState().name())) {
-                // We must map the "toState" to GitHub's internal states. e.g. "DISMISS" => state="dismissed", reason="other"
-                // Build an UpdateAlertEvent or call handleUpdateFinding directly:
-
-                String mappedNewState = mapRunbookStateToGitHubAction(toState); // you define this
-
-                // Now produce an UPDATE_FINDING event, or call handleUpdateFinding directly:
-                UpdateAlertEvent updateEvent = new UpdateAlertEvent(
-                        UUID.randomUUID().toString(),
-                        new UpdateEvent(
-                                tenantId.toString(),
-                                finding.getToolType(),
-                                Long.parseLong(finding.getAlertNumber()), // be sure this is numeric
-                                mappedNewState, // e.g. "DISMISS", "RESOLVE", or "OPEN"
-                                "other"
-                        )
-                );
+    private void applyActions(RunbookActionPlan actions, Findings finding, Long tenantId,
+                              Map<String, Findings> ticketFindings) {
+        // 1) "update_finding": if the finding is currently in "from" (any state when blank).
+        //    Re-applying one is cheap: GithubApiClient skips the PATCH when the cached ETag
+        //    shows the alert already has that state.
+        RunbookActionPlan.UpdateFinding update = actions.updateFinding();
+        if (update != null && update.appliesTo(finding.getState())) {
+            // "to" was mapped to GitHub's action when the runbook was compiled, e.g. "SUPPRESSED" => "DISMISS"
+            UpdateAlertEvent updateEvent = new UpdateAlertEvent(
+                    UUID.randomUUID().toString(),
+                    new UpdateEvent(
+                            tenantId.toString(),
+                            finding.getToolType(),
+                            Long.parseLong(finding.getAlertNumber()), // be sure this is numeric
+                            update.githubAction(), // e.g. "DISMISS", "RESOLVE", or "OPEN"
+                            "other"
+                    )
+            );
 
-                // You can produce this event so it flows through JFC & the normal pipeline:
-                // Or call handleUpdateFinding(updateEvent) directly, but producing an event
-                // is more consistent with the rest of the pipeline.
-                try {
-                    String json = new ObjectMapper().writeValueAsString(updateEvent);
-                    handleUpdateFinding(updateEvent);
-                    System.out.println("[Runbook] Triggered UPDATE_FINDING => " + json);
-                } catch (Exception e) {
-                    e.printStackTrace();
-                }
+            // You can produce this event so it flows through JFC & the normal pipeline:
+            // Or call handleUpdateFinding(updateEvent) directly, but producing an event
+            // is more consistent with the rest of the pipeline.
+            try {
+                handleUpdateFinding(updateEvent);
+                System.out.println("[Runbook] Triggered UPDATE_FINDING for alert " + finding.getAlertNumber());
+            } catch (PartialBatchFailureException e) {
+                // transient => park it in the retry topics like any other UPDATE_FINDING job
+                retryRouter.route(updateEvent, e);
+            } catch (Exception e) {
+                e.printStackTrace();
             }
         }
 
-        // 2) Check "create_ticket"
-        Object createTicketObj = actions.get("create_ticket");
-        if (createTicketObj instanceof Boolean && (Boolean) createTicketObj) {
-            // Create a ticket using the doc’s title (summary) / description
-            String summary = truncate(finding.getTitle(), 200);
-            String desc    = truncate(finding.getDescription(), 200);
-
-            CreateTicketRequestEvent createEvent = new CreateTicketRequestEvent(
-                    new CreateTicketRequestPayload(
-                            tenantId,
-                            finding.getId(),   // the ES doc ID
-                            summary,
-                            desc
-                    ),
-                    "ticket_" + UUID.randomUUID(),
-                    "jfc-jobs" // or whichever topic
-            );
+        // 2) "create_ticket": collected for createTicketsInBulk; a finding matched by several runbooks gets one ticket,
+        //    and one that already has a ticket (e.g. from before this scan was retried) gets none
+        if (actions.createTicket() && finding.getId() != null && finding.getTicketId() == null) {
+            ticketFindings.putIfAbsent(finding.getId(), finding);
+        }
+    }
+
+    /**
+     * Creates the tickets a scan's runbooks asked for through Jira's bulk create, at most
+     * {@link JiraClient#MAX_BULK_ISSUES} per call and most severe first, and records each chunk
+     * with one ES bulk update and one transaction. A chunk that fails for good is logged and
+     * skipped; the other chunks still run, then a transient failure (Jira or ES unavailable)
+     * is rethrown as a {@link TransientJobException} so the scan is retried.
+     */
+    private void createTicketsInBulk(Long tenantId, Collection<Findings> findings) {
+        if (findings.isEmpty()) return;
+        TenantEntity tenant = findTenantById(tenantId);
+        List<Findings> ordered = findings.stream()
+                .sorted(Comparator.comparing(Findings::getSeverity, Comparator.nullsLast(Comparator.naturalOrder())))
+                .toList();
+
+        int transientFailures = 0;
+        Exception lastTransient = null;
+        for (int from = 0; from < ordered.size(); from += JiraClient.MAX_BULK_ISSUES) {
+            List<Findings> chunk = ordered.subList(from, Math.min(from + JiraClient.MAX_BULK_ISSUES, ordered.size()));
             try {
-                String json = new ObjectMapper().writeValueAsString(createEvent);
-                handleCreateTicket(createEvent);
-                System.out.println("[Runbook] Triggered CREATE_TICKET => " + json);
+                // Create a ticket using each doc’s title (summary) / description
+                List<JiraClient.NewIssue> issues = chunk.stream()
+                        .map(f -> new JiraClient.NewIssue(truncate(f.getTitle(), 200), truncate(f.getDescription(), 200)))
+                        .toList();
+                List<String> ticketKeys = jiraClient.createIssues(tenant, issues);
+                recordTickets(tenant, chunk, ticketKeys);
             } catch (Exception e) {
                 e.printStackTrace();
+                if (JobRetryRouter.isRetryable(e)) {
+                    transientFailures++;
+                    lastTransient = e;
+                }
             }
         }
+        if (lastTransient != null) {
+            throw new TransientJobException(
+                    "Ticket creation failed transiently for " + transientFailures + " chunk(s)", lastTransient);
+        }
     }
 
-    private String truncate(String text, int maxLen) {
-        if (text == null) return "";
-        return (text.length() <= maxLen) ? text : text.substring(0, maxLen);
-    }
-
-    private Map<String, Object> parseJsonToMap(String json) {
-        if (json == null || json.isBlank()) return Collections.emptyMap();
-        try {
-            return new ObjectMapper().readValue(json, new TypeReference<Map<String, Object>>() {});
-        } catch (Exception e) {
-            e.printStackTrace();
-            return Collections.emptyMap();
+    private void recordTickets(TenantEntity tenant, List<Findings> findings, List<String> ticketKeys) {
+        Map<String, String> ticketKeysByFindingId = new LinkedHashMap<>();
+        List<TenantTicketEntity> tickets = new ArrayList<>();
+        List<AckOutboxEntity> acks = new ArrayList<>();
+        for (int i = 0; i < findings.size(); i++) {
+            String ticketKey = ticketKeys.get(i);
+            if (ticketKey == null) continue;
+            String findingId = findings.get(i).getId();
+            ticketKeysByFindingId.put(findingId, ticketKey);
+            tickets.add(new TenantTicketEntity(tenant.getId().intValue(), ticketKey, findingId));
+            // same ack a runbook-generated CREATE_TICKET job always produced
+            acks.add(new AckOutboxEntity("ticket_" + UUID.randomUUID(), AcknowledgementStatus.SUCCESS));
         }
+        esClientService.updateFindingTicketIds(tenant.getId(), ticketKeysByFindingId);
+        transactionTemplate.executeWithoutResult(status -> {
+            tenantTicketRepository.saveAll(tickets);
+            ackOutboxRepository.saveAll(acks);
+        });
     }
 
-    // Example mapping from "DISMISS" => GH "DISMISS"
-    private String mapRunbookStateToGitHubAction(String toState) {
-        if (toState == null) return "OPEN";
-        switch (toState.toUpperCase()) {
-            case "SUPPRESSED": return "DISMISS";
-            case "FALSE_POSITIVE": return "FALSE_POSITIVE";
-            case "DISMISS":  return "DISMISS";
-            case "RESOLVE":  return "RESOLVE";
-            default:         return "OPEN";
-        }
+    private String truncate(String text, int maxLen) {
+        if (text == null) return "";
+        return (text.length() <= maxLen) ? text : text.substring(0, maxLen);
     }
 }
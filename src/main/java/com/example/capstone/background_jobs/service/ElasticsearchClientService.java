@@ -1,7 +1,12 @@
 package com.example.capstone.background_jobs.service;
 
+import co.elastic.clients.elasticsearch.ElasticsearchAsyncClient;
 import co.elastic.clients.elasticsearch.ElasticsearchClient;
 import co.elastic.clients.elasticsearch._types.Conflicts;
+import co.elastic.clients.elasticsearch._types.FieldValue;
+import co.elastic.clients.elasticsearch._types.query_dsl.Query;
+import co.elastic.clients.elasticsearch.core.BulkRequest;
+import co.elastic.clients.elasticsearch.core.BulkResponse;
 import co.elastic.clients.elasticsearch.core.SearchResponse;
 import co.elastic.clients.elasticsearch.core.UpdateByQueryResponse;
 import co.elastic.clients.elasticsearch.core.UpdateRequest;
@@ -9,32 +14,65 @@ import co.elastic.clients.elasticsearch.core.UpdateResponse;
 import co.elastic.clients.elasticsearch.core.search.Hit;
 import co.elastic.clients.json.JsonData;
 import com.example.capstone.background_jobs.model.Findings;
-import com.example.capstone.background_jobs.model.TenantEntity;
-import com.example.capstone.background_jobs.repository.TenantRepository;
+import com.example.capstone.background_jobs.runbook.RunbookFilter;
+import com.example.capstone.background_jobs.runbook.RunbookMatcher;
+import com.example.capstone.background_jobs.tenant.TenantContextCache;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
 import java.io.IOException;
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.function.Consumer;
 
 @Service
 public class ElasticsearchClientService {
 
+    // _source fields runbook actions read: matching, update_finding, and for tickets title/description
+    // plus ticketId (findings that already have one get no second ticket)
+    private static final List<String> UPDATE_FIELDS = List.of(
+            "id", "toolType", "severity", "state", "alertNumber", "cvss");
+    private static final List<String> TICKET_FIELDS = List.of(
+            "id", "toolType", "severity", "state", "alertNumber", "cvss", "title", "description", "ticketId");
+
     private final ElasticsearchClient esClient;
-    private final TenantRepository tenantRepository;
+    private final ElasticsearchAsyncClient esAsyncClient;
+    private final TenantContextCache tenantContexts;
+    private final int fetchChunkSize;
+    private final int fetchParallelism;
 
-    public ElasticsearchClientService(ElasticsearchClient esClient, TenantRepository tenantRepository) {
+    public ElasticsearchClientService(ElasticsearchClient esClient, ElasticsearchAsyncClient esAsyncClient,
+                                      TenantContextCache tenantContexts,
+                                      @Value("${elasticsearch.fetch.chunk-size:1000}") int fetchChunkSize,
+                                      @Value("${elasticsearch.fetch.parallelism:2}") int fetchParallelism) {
         this.esClient = esClient;
-        this.tenantRepository = tenantRepository;
+        this.esAsyncClient = esAsyncClient;
+        this.tenantContexts = tenantContexts;
+        this.fetchChunkSize = fetchChunkSize;
+        this.fetchParallelism = Math.max(1, fetchParallelism);
     }
 
     public void updateFindingInEs(String esIndex, long alertNumber, String newState) throws IOException {
+        updateFindingsInEs(esIndex, List.of(alertNumber), newState);
+    }
+
+    /**
+     * Sets the same state on every finding whose alertNumber is in the list, in one update_by_query.
+     */
+    public void updateFindingsInEs(String esIndex, List<Long> alertNumbers, String newState) throws IOException {
+        if (alertNumbers == null || alertNumbers.isEmpty()) {
+            return;
+        }
+        List<FieldValue> values = alertNumbers.stream().map(n -> FieldValue.of(n.longValue())).toList();
+
         UpdateByQueryResponse response = esClient.updateByQuery(r -> r
                 .index(esIndex)
                 .conflicts(Conflicts.Proceed)
                 .query(q -> q
-                        .term(t -> t
+                        .terms(t -> t
                                 .field("alertNumber.keyword")
-                                .value(alertNumber)
+                                .terms(v -> v.value(values))
                         )
                 )
                 .script(s -> s
@@ -44,8 +82,8 @@ public class ElasticsearchClientService {
                 )
         );
 
-        System.out.printf("[ElasticsearchClientService] updateFindingInEs => matched=%d, updated=%d, failures=%d%n",
-                response.total(), response.updated(), response.failures().size());
+        System.out.printf("[ElasticsearchClientService] updateFindingsInEs => alerts=%d, matched=%d, updated=%d, failures=%d%n",
+                alertNumbers.size(), response.total(), response.updated(), response.failures().size());
 
         if (!response.failures().isEmpty()) {
             throw new RuntimeException("ES update failures => " + response.failures());
@@ -86,17 +124,8 @@ public class ElasticsearchClientService {
 
     public void updateFindingTicketId(Long tenantId, String findingId, String newTicketKey) {
         try {
-            // 1. Fetch the tenant’s esIndex from the DB:
-            Optional<TenantEntity> tenantOpt = tenantRepository.findById(tenantId);
-            if (tenantOpt.isEmpty()) {
-                throw new IllegalStateException("No tenant found with id=" + tenantId);
-            }
-            TenantEntity tenant = tenantOpt.get();
-
-            String esIndex = tenant.getEsIndex();
-            if (esIndex == null || esIndex.isBlank()) {
-                throw new IllegalStateException("Tenant " + tenantId + " has no valid esIndex set.");
-            }
+            // 1. The tenant’s esIndex (cached, no DB round trip)
+            String esIndex = esIndexOf(tenantId);
 
             // 2. Build partial doc with only the ticketId field
             Map<String, Object> partialDoc = new HashMap<>();
@@ -121,42 +150,145 @@ public class ElasticsearchClientService {
         }
     }
 
-    public List<Findings> fetchFindingsByIds(Long tenantId, List<String> docIds) {
-        if (docIds == null || docIds.isEmpty()) {
-            return Collections.emptyList();
+    /**
+     * Sets ticketId on many findings (doc _id => ticket key) with one bulk request.
+     */
+    public void updateFindingTicketIds(Long tenantId, Map<String, String> ticketKeysByFindingId) {
+        if (ticketKeysByFindingId == null || ticketKeysByFindingId.isEmpty()) {
+            return;
         }
+        String esIndex = esIndexOf(tenantId);
 
-        // 1) Determine the tenant’s Elasticsearch index
-        TenantEntity tenant = tenantRepository.findById(tenantId)
-                .orElseThrow(() -> new IllegalStateException("No tenant found with id=" + tenantId));
-        String esIndex = tenant.getEsIndex();
-        if (esIndex == null || esIndex.isBlank()) {
-            throw new IllegalStateException("Tenant " + tenantId + " has no valid esIndex set.");
+        try {
+            BulkRequest.Builder bulk = new BulkRequest.Builder().index(esIndex);
+            ticketKeysByFindingId.forEach((findingId, ticketKey) -> bulk.operations(op -> op
+                    .update(u -> u
+                            .id(findingId)
+                            .action(a -> a.doc(Map.of("ticketId", ticketKey)))
+                    )
+            ));
+            BulkResponse response = esClient.bulk(bulk.build());
+
+            List<String> failures = response.items().stream()
+                    .filter(item -> item.error() != null)
+                    .map(item -> item.id() + ": " + item.error().reason())
+                    .toList();
+            System.out.printf("[ElasticsearchClientService] updateFindingTicketIds => index=%s, docs=%d, failures=%d%n",
+                    esIndex, ticketKeysByFindingId.size(), failures.size());
+            if (!failures.isEmpty()) {
+                throw new RuntimeException("ES bulk ticketId update failures => " + failures);
+            }
+        } catch (IOException e) {
+            e.printStackTrace();
+            throw new RuntimeException("Failed to bulk update ticketIds in Elasticsearch", e);
         }
+    }
+
+    /**
+     * Fetches the findings with the given _ids that can match one of the matcher's runbooks,
+     * with only the fields runbook actions read. Each runbook's state, severity and toolType
+     * constraints become a bool filter, OR-ed together next to the ids query; anything ES
+     * can't check (cvss is a string) is left to the matcher.
+     *
+     * The ids are fetched in chunks of elasticsearch.fetch.chunk-size (well under
+     * index.max_result_window), at most elasticsearch.fetch.parallelism chunks in flight, and
+     * handed to {@code onChunk} in order on the calling thread. The next chunks are only
+     * requested as earlier ones are consumed, so memory stays flat however long the id list is.
+     */
+    public void streamMatchingFindings(Long tenantId, List<String> docIds, RunbookMatcher matcher,
+                                       Consumer<List<Findings>> onChunk) throws InterruptedException {
+        if (docIds == null || docIds.isEmpty() || matcher.isEmpty()) {
+            return;
+        }
+        String esIndex = esIndexOf(tenantId);
+        Query anyRunbook = anyRunbookQuery(matcher);
+        List<String> fields = matcher.createsTickets() ? TICKET_FIELDS : UPDATE_FIELDS;
 
+        Deque<CompletableFuture<List<Findings>>> inFlight = new ArrayDeque<>();
+        int next = 0;
         try {
-            // 2) Search by doc IDs (the actual _id in Elasticsearch)
-            // The .ids(...) query is a convenient way to do an “_id in [list]” search.
-            SearchResponse<Findings> response = esClient.search(
-                    s -> s.index(esIndex)
-                            .size(docIds.size())
-                            .query(q -> q.ids(i -> i.values(docIds))),
-                    Findings.class
-            );
-
-            // 3) Collect the sources
+            while (next < docIds.size() || !inFlight.isEmpty()) {
+                while (inFlight.size() < fetchParallelism && next < docIds.size()) {
+                    List<String> chunk = docIds.subList(next, Math.min(next + fetchChunkSize, docIds.size()));
+                    inFlight.add(searchChunk(esIndex, chunk, anyRunbook, fields));
+                    next += chunk.size();
+                }
+                List<Findings> findings;
+                try {
+                    findings = inFlight.poll().get();
+                } catch (ExecutionException e) {
+                    throw new RuntimeException("Failed to fetch findings by IDs from Elasticsearch", e.getCause());
+                }
+                onChunk.accept(findings);
+            }
+        } finally {
+            // only non-empty if we bailed out early
+            inFlight.forEach(f -> f.cancel(true));
+        }
+    }
+
+    private CompletableFuture<List<Findings>> searchChunk(String esIndex, List<String> docIds, Query anyRunbook,
+                                                          List<String> fields) {
+        return esAsyncClient.search(
+                s -> s.index(esIndex)
+                        .size(docIds.size())
+                        .query(q -> q.bool(b -> {
+                            b.filter(f -> f.ids(i -> i.values(docIds)));
+                            if (anyRunbook != null) {
+                                b.filter(anyRunbook);
+                            }
+                            return b;
+                        }))
+                        .source(src -> src.filter(f -> f.includes(fields))),
+                Findings.class
+        ).thenApply(response -> {
             List<Findings> results = new ArrayList<>();
             for (Hit<Findings> hit : response.hits().hits()) {
                 Findings found = hit.source();
                 if (found != null) {
+                    // _id isn't in a filtered _source unless the doc stores it
+                    if (found.getId() == null) {
+                        found.setId(hit.id());
+                    }
                     results.add(found);
                 }
             }
             return results;
+        });
+    }
 
-        } catch (IOException e) {
-            e.printStackTrace();
-            throw new RuntimeException("Failed to fetch findings by IDs from Elasticsearch", e);
+    // null when some runbook has no state/severity/toolType constraint, so every id can match
+    private static Query anyRunbookQuery(RunbookMatcher matcher) {
+        List<Query> anyOf = new ArrayList<>();
+        for (RunbookFilter filter : matcher.filters()) {
+            List<Query> all = new ArrayList<>();
+            if (filter.states() != null) {
+                all.add(termsQuery("state.keyword", filter.states().stream().map(Enum::name).toList()));
+            }
+            if (filter.severities() != null) {
+                all.add(termsQuery("severity.keyword", filter.severities().stream().map(Enum::name).toList()));
+            }
+            if (filter.toolTypes() != null) {
+                all.add(termsQuery("toolType.keyword", List.of(filter.toolTypes())));
+            }
+            if (all.isEmpty()) {
+                return null;
+            }
+            anyOf.add(Query.of(q -> q.bool(b -> b.filter(all))));
+        }
+        return Query.of(q -> q.bool(b -> b.should(anyOf).minimumShouldMatch("1")));
+    }
+
+    private static Query termsQuery(String field, List<String> values) {
+        List<FieldValue> terms = values.stream().map(FieldValue::of).toList();
+        return Query.of(q -> q.terms(t -> t.field(field).terms(v -> v.value(terms))));
+    }
+
+    private String esIndexOf(Long tenantId) {
+        String esIndex = tenantContexts.get(tenantId).esIndex();
+        if (esIndex == null || esIndex.isBlank()) {
+            throw new IllegalStateException("Tenant " + tenantId + " has no valid esIndex set.");
         }
+        return esIndex;
     }
 }
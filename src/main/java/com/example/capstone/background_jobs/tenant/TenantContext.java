@@ -0,0 +1,36 @@
+package com.example.capstone.background_jobs.tenant;
+
+import com.example.capstone.background_jobs.model.TenantEntity;
+import org.apache.commons.codec.binary.Base64;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * A tenant row plus what every job derives from it, built once per load by TenantContextCache.
+ * The tenant is a detached snapshot; treat it as read-only.
+ */
+public record TenantContext(TenantEntity tenant,
+                            String esIndex,
+                            String jiraBaseUrl,
+                            String jiraAuthorization,
+                            String githubAuthorization) {
+
+    static TenantContext of(TenantEntity tenant) {
+        String auth = tenant.getUsername() + ":" + tenant.getApiToken();
+        return new TenantContext(
+                tenant,
+                tenant.getEsIndex(),
+                // projectName typically something like "ishaanchadha.atlassian.net"
+                "https://" + tenant.getProjectName(),
+                "Basic " + new String(Base64.encodeBase64(auth.getBytes(StandardCharsets.UTF_8)), StandardCharsets.US_ASCII),
+                "Bearer " + tenant.getPersonalAccessToken());
+    }
+
+    public Long tenantId() {
+        return tenant.getId();
+    }
+
+    public String jiraUrl(String path) {
+        return jiraBaseUrl + path;
+    }
+}
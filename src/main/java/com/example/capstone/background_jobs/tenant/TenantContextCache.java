@@ -0,0 +1,74 @@
+package com.example.capstone.background_jobs.tenant;
+
+import com.example.capstone.background_jobs.model.TenantEntity;
+import com.example.capstone.background_jobs.repository.TenantRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Read-through cache of {@link TenantContext} by tenant id, so jobs stop going to MySQL for the
+ * tenant row. Entries live for tenants.cache.ttl (credential changes show up within that) and
+ * the least recently used are dropped past tenants.cache.max-entries. Callers that learn the
+ * cached data is wrong (e.g. a 401) call {@link #invalidate(Long)}.
+ * Hits and misses are counted as bgjobs.tenant.cache{result=hit|miss}.
+ */
+@Component
+public class TenantContextCache {
+
+    private record Entry(TenantContext context, long loadedAt) {
+    }
+
+    private final TenantRepository tenantRepository;
+    private final long ttlNanos;
+    private final Map<Long, Entry> entries;
+    private final Counter hits;
+    private final Counter misses;
+
+    public TenantContextCache(TenantRepository tenantRepository, MeterRegistry meterRegistry,
+                              @Value("${tenants.cache.max-entries:1000}") int maxEntries,
+                              @Value("${tenants.cache.ttl:5m}") Duration ttl) {
+        this.tenantRepository = tenantRepository;
+        this.ttlNanos = ttl.toNanos();
+        this.entries = new LinkedHashMap<>(64, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Long, Entry> eldest) {
+                return size() > maxEntries;
+            }
+        };
+        this.hits = meterRegistry.counter("bgjobs.tenant.cache", "result", "hit");
+        this.misses = meterRegistry.counter("bgjobs.tenant.cache", "result", "miss");
+    }
+
+    public TenantContext get(Long tenantId) {
+        synchronized (this) {
+            Entry entry = entries.get(tenantId);
+            if (entry != null && System.nanoTime() - entry.loadedAt() < ttlNanos) {
+                hits.increment();
+                return entry.context();
+            }
+        }
+        // load outside the lock; two threads missing the same tenant just both load it
+        misses.increment();
+        TenantEntity tenant = tenantRepository.findById(tenantId)
+                .orElseThrow(() -> new IllegalStateException("Tenant not found with ID=" + tenantId));
+        TenantContext context = TenantContext.of(tenant);
+        synchronized (this) {
+            entries.put(tenantId, new Entry(context, System.nanoTime()));
+        }
+        return context;
+    }
+
+    public TenantEntity getTenant(Long tenantId) {
+        return get(tenantId).tenant();
+    }
+
+    public synchronized void invalidate(Long tenantId) {
+        entries.remove(tenantId);
+    }
+}
@@ -0,0 +1,71 @@
+package com.example.capstone.background_jobs.bench;
+
+import com.example.capstone.background_jobs.consumer.JobEventDecoder;
+import com.example.capstone.background_jobs.dto.UpdateAlertEvent;
+import com.example.capstone.background_jobs.model.Event;
+import com.example.capstone.background_jobs.model.EventTypes;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.module.blackbird.BlackbirdModule;
+import org.apache.kafka.common.header.internals.RecordHeaders;
+import org.openjdk.jmh.annotations.*;
+
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares the old consumer decoding (bytes -> String, readTree for "type", readValue again)
+ * with JobEventDecoder's header dispatch and streaming peek.
+ *
+ * Run with:
+ *   mvn -DskipTests test-compile dependency:build-classpath -Dmdep.outputFile=target/cp.txt
+ *   java -cp target/test-classes:target/classes:$(cat target/cp.txt) org.openjdk.jmh.Main EventDecodingBenchmark
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class EventDecodingBenchmark {
+
+    // Serialized the way Jackson writes UpdateAlertEvent: "type" comes after the payload
+    private static final String MESSAGE = "{\"eventId\":\"6f1c0d7e-2b9a-4c55-9d1e-0a7f1c2b3d4e\","
+            + "\"payload\":{\"tenantId\":\"1\",\"toolType\":\"CODE_SCANNING\",\"alertNumber\":1234,"
+            + "\"newState\":\"DISMISS\",\"reason\":\"false_positive\"},"
+            + "\"type\":\"UPDATE_FINDING\"}";
+
+    private byte[] bytes;
+    private RecordHeaders headers;
+    private ObjectMapper legacyMapper;
+    private JobEventDecoder decoder;
+
+    @Setup
+    public void setUp() {
+        bytes = MESSAGE.getBytes(StandardCharsets.UTF_8);
+        headers = new RecordHeaders();
+        headers.add(JobEventDecoder.EVENT_TYPE_HEADER, "UPDATE_FINDING".getBytes(StandardCharsets.UTF_8));
+        legacyMapper = new ObjectMapper();
+        decoder = new JobEventDecoder(new ObjectMapper().registerModule(new BlackbirdModule()));
+    }
+
+    @Benchmark
+    public Object legacyTreeThenBind() throws Exception {
+        String message = new String(bytes, StandardCharsets.UTF_8);
+        String typeStr = legacyMapper.readTree(message).path("type").asText();
+        EventTypes type = EventTypes.valueOf(typeStr.toUpperCase());
+        if (type != EventTypes.UPDATE_FINDING) {
+            throw new IllegalStateException();
+        }
+        return legacyMapper.readValue(message, UpdateAlertEvent.class);
+    }
+
+    @Benchmark
+    public Event<?> streamingPeekThenBind() throws Exception {
+        return decoder.decode(bytes);
+    }
+
+    @Benchmark
+    public Event<?> headerDispatch() throws Exception {
+        return decoder.decode(bytes, headers);
+    }
+}
@@ -0,0 +1,45 @@
+package com.example.capstone.background_jobs.config;
+
+import org.apache.hc.client5.http.HttpRoute;
+import org.apache.hc.client5.http.impl.DefaultSchemePortResolver;
+import org.apache.hc.client5.http.impl.nio.PoolingAsyncClientConnectionManager;
+import org.apache.hc.client5.http.impl.nio.PoolingAsyncClientConnectionManagerBuilder;
+import org.apache.hc.client5.http.impl.routing.DefaultRoutePlanner;
+import org.apache.hc.client5.http.protocol.HttpClientContext;
+import org.apache.hc.core5.http.HttpHost;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class OutboundHttpConfigTest {
+
+    private final PoolingAsyncClientConnectionManager cm = PoolingAsyncClientConnectionManagerBuilder.create()
+            .setMaxConnPerRoute(20)
+            .build();
+
+    @AfterEach
+    void tearDown() {
+        cm.close();
+    }
+
+    // the route the client itself plans for a request, not one built by hand
+    private static HttpRoute plannedRoute(String uri) throws Exception {
+        return new DefaultRoutePlanner(DefaultSchemePortResolver.INSTANCE)
+                .determineRoute(HttpHost.create(uri), HttpClientContext.create());
+    }
+
+    @Test
+    void githubRequestsGetTheRaisedLimit() throws Exception {
+        OutboundHttpConfig.raiseGithubLimit(cm, 64);
+
+        assertEquals(64, cm.getMaxPerRoute(plannedRoute("https://api.github.com")));
+    }
+
+    @Test
+    void otherHostsKeepTheDefaultLimit() throws Exception {
+        OutboundHttpConfig.raiseGithubLimit(cm, 64);
+
+        assertEquals(20, cm.getMaxPerRoute(plannedRoute("https://acme.atlassian.net")));
+    }
+}
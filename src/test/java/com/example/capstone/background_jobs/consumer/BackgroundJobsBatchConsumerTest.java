@@ -0,0 +1,91 @@
+package com.example.capstone.background_jobs.consumer;
+
+import com.example.capstone.background_jobs.dto.UpdateAlertEvent;
+import com.example.capstone.background_jobs.executor.JobDispatcher;
+import com.example.capstone.background_jobs.model.Event;
+import com.example.capstone.background_jobs.model.EventTypes;
+import com.example.capstone.background_jobs.model.UpdateEvent;
+import com.example.capstone.background_jobs.retry.JobRetryRouter;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.junit.jupiter.api.Test;
+import org.mockito.InOrder;
+import org.springframework.kafka.support.Acknowledgment;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.same;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class BackgroundJobsBatchConsumerTest {
+
+    private final JobDispatcher dispatcher = mock(JobDispatcher.class);
+    private final JobEventDecoder decoder = mock(JobEventDecoder.class);
+    private final JobRetryRouter retryRouter = mock(JobRetryRouter.class);
+    private final Acknowledgment ack = mock(Acknowledgment.class);
+    private final BackgroundJobsBatchConsumer consumer = new BackgroundJobsBatchConsumer(dispatcher, decoder, retryRouter);
+
+    @Test
+    void groupsRecordsByTypeAndTenantInArrivalOrder() throws Exception {
+        UpdateAlertEvent first = update("e1", "1", 7);
+        UpdateAlertEvent otherTenant = update("e2", "2", 7);
+        UpdateAlertEvent second = update("e3", "1", 8);
+        ConsumerRecord<String, byte[]> r1 = record(0, first);
+        ConsumerRecord<String, byte[]> r2 = record(1, otherTenant);
+        ConsumerRecord<String, byte[]> r3 = record(2, second);
+        when(dispatcher.dispatchGroup(any(), any(), any())).thenReturn(CompletableFuture.completedFuture(null));
+
+        consumer.onJfcJobBatch(List.of(r1, r2, r3), ack);
+
+        InOrder order = inOrder(dispatcher, ack);
+        order.verify(dispatcher).dispatchGroup(EventTypes.UPDATE_FINDING, 1L, List.<Event<?>>of(first, second));
+        order.verify(dispatcher).dispatchGroup(EventTypes.UPDATE_FINDING, 2L, List.<Event<?>>of(otherTenant));
+        order.verify(ack).acknowledge();
+    }
+
+    @Test
+    void failedGroupIsRoutedAndTheBatchStillCommits() throws Exception {
+        UpdateAlertEvent ok = update("e1", "1", 7);
+        UpdateAlertEvent failing = update("e2", "2", 7);
+        IllegalStateException failure = new IllegalStateException("lane full");
+        when(dispatcher.dispatchGroup(EventTypes.UPDATE_FINDING, 1L, List.<Event<?>>of(ok)))
+                .thenReturn(CompletableFuture.completedFuture(null));
+        when(dispatcher.dispatchGroup(EventTypes.UPDATE_FINDING, 2L, List.<Event<?>>of(failing)))
+                .thenReturn(CompletableFuture.failedFuture(failure));
+
+        consumer.onJfcJobBatch(List.of(record(0, ok), record(1, failing)), ack);
+
+        verify(retryRouter).routeGroup(List.<Event<?>>of(failing), failure);
+        verify(retryRouter, never()).routeGroup(List.<Event<?>>of(ok), failure);
+        verify(ack).acknowledge();
+    }
+
+    @Test
+    void undecodableRecordIsParkedWithoutStoppingTheBatch() throws Exception {
+        UpdateAlertEvent ok = update("e1", "1", 7);
+        ConsumerRecord<String, byte[]> rejected = new ConsumerRecord<>("jfc-bg-job-topic", 0, 1, "1", null);
+        when(dispatcher.dispatchGroup(any(), any(), any())).thenReturn(CompletableFuture.completedFuture(null));
+
+        consumer.onJfcJobBatch(List.of(record(0, ok), rejected), ack);
+
+        verify(retryRouter).routeUndecodable(same(rejected), any(IllegalArgumentException.class));
+        verify(dispatcher).dispatchGroup(EventTypes.UPDATE_FINDING, 1L, List.<Event<?>>of(ok));
+        verify(ack).acknowledge();
+    }
+
+    private ConsumerRecord<String, byte[]> record(long offset, Event<?> event) throws Exception {
+        byte[] value = event.getEventId().getBytes();
+        doReturn(event).when(decoder).decode(same(value), any());
+        return new ConsumerRecord<>("jfc-bg-job-topic", 0, offset, "1", value);
+    }
+
+    private static UpdateAlertEvent update(String eventId, String tenantId, long alertNumber) {
+        return new UpdateAlertEvent(eventId, new UpdateEvent(tenantId, "DEPENDABOT", alertNumber, "DISMISS", "other"));
+    }
+}
@@ -0,0 +1,203 @@
+package com.example.capstone.background_jobs.executor;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class KeyedJobExecutorTest {
+
+    private KeyedJobExecutor lane;
+
+    @AfterEach
+    void tearDown() throws InterruptedException {
+        if (lane != null) {
+            lane.close();
+        }
+    }
+
+    @Test
+    void runsJobsWithTheSameKeyInSubmissionOrder() throws Exception {
+        lane = new KeyedJobExecutor("test", 4, 100, Duration.ofSeconds(5));
+        List<Integer> seen = Collections.synchronizedList(new ArrayList<>());
+        List<CompletableFuture<Void>> futures = new ArrayList<>();
+        for (int i = 0; i < 50; i++) {
+            int n = i;
+            futures.add(lane.submit("tenant-1", () -> {
+                sleep(n % 3);
+                seen.add(n);
+            }));
+        }
+        CompletableFuture.allOf(futures.toArray(new CompletableFuture[0])).get(10, TimeUnit.SECONDS);
+
+        List<Integer> expected = new ArrayList<>();
+        for (int i = 0; i < 50; i++) {
+            expected.add(i);
+        }
+        assertEquals(expected, seen);
+        assertEquals(50, lane.getCompleted());
+    }
+
+    @Test
+    void runsDifferentKeysInParallel() throws Exception {
+        lane = new KeyedJobExecutor("test", 2, 10, Duration.ofSeconds(5));
+        CountDownLatch bothStarted = new CountDownLatch(2);
+        Runnable job = () -> {
+            bothStarted.countDown();
+            try {
+                assertTrue(bothStarted.await(5, TimeUnit.SECONDS));
+            } catch (InterruptedException e) {
+                throw new IllegalStateException(e);
+            }
+        };
+        CompletableFuture<Void> a = lane.submit("tenant-1", job);
+        CompletableFuture<Void> b = lane.submit("tenant-2", job);
+        CompletableFuture.allOf(a, b).get(10, TimeUnit.SECONDS);
+    }
+
+    @Test
+    void rejectsJobsBeyondConcurrencyPlusQueueDepth() throws Exception {
+        lane = new KeyedJobExecutor("test", 1, 2, Duration.ofSeconds(5));
+        CountDownLatch release = new CountDownLatch(1);
+        List<CompletableFuture<Void>> accepted = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            accepted.add(lane.submit("tenant-" + i, () -> await(release)));
+        }
+
+        CompletableFuture<Void> overflow = lane.submit("tenant-3", () -> { });
+        ExecutionException e = assertThrows(ExecutionException.class, () -> overflow.get(1, TimeUnit.SECONDS));
+        assertInstanceOf(RejectedExecutionException.class, e.getCause());
+        assertEquals(1, lane.getRejected());
+
+        release.countDown();
+        CompletableFuture.allOf(accepted.toArray(new CompletableFuture[0])).get(10, TimeUnit.SECONDS);
+        // the slots are given back right after the futures complete
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (lane.getInFlight() > 0 && System.nanoTime() < deadline) {
+            Thread.sleep(1);
+        }
+        lane.submit("tenant-3", () -> { }).get(5, TimeUnit.SECONDS);
+    }
+
+    @Test
+    void interruptedJobFailsWithTimeoutOnlyOnceItHasStopped() throws Exception {
+        lane = new KeyedJobExecutor("test", 1, 10, Duration.ofMillis(100));
+        CountDownLatch stopped = new CountDownLatch(1);
+        CompletableFuture<Void> result = lane.submit("tenant-1", () -> {
+            try {
+                Thread.sleep(10_000);
+            } catch (InterruptedException e) {
+                // a job that ignores the interrupt for a while must not be reported as stopped
+                sleepUninterruptibly(300);
+                stopped.countDown();
+                throw new IllegalStateException("interrupted", e);
+            }
+        });
+
+        Thread.sleep(250);
+        assertFalse(result.isDone(), "completed while the job was still running");
+
+        ExecutionException e = assertThrows(ExecutionException.class, () -> result.get(5, TimeUnit.SECONDS));
+        assertEquals(0, stopped.getCount());
+        assertInstanceOf(TimeoutException.class, e.getCause());
+        assertEquals(1, lane.getTimedOut());
+        assertEquals(1, lane.getFailed());
+    }
+
+    @Test
+    void jobThatFinishesPastTheTimeoutStillCompletesNormally() throws Exception {
+        lane = new KeyedJobExecutor("test", 1, 10, Duration.ofMillis(50));
+        CompletableFuture<Void> result = lane.submit("tenant-1", () -> sleepUninterruptibly(200));
+
+        result.get(5, TimeUnit.SECONDS);
+        assertEquals(1, lane.getTimedOut());
+        assertEquals(1, lane.getCompleted());
+    }
+
+    @Test
+    void timeoutInterruptDoesNotLeakIntoTheNextJob() throws Exception {
+        lane = new KeyedJobExecutor("test", 1, 10, Duration.ofMillis(50));
+        lane.submit("tenant-1", () -> sleepUninterruptibly(150));
+        CompletableFuture<Boolean> interrupted = new CompletableFuture<>();
+        lane.submit("tenant-1", () -> interrupted.complete(Thread.currentThread().isInterrupted()));
+
+        assertFalse(interrupted.get(5, TimeUnit.SECONDS));
+    }
+
+    @Test
+    void chainedJobRefusedByAShutDownPoolFailsInsteadOfHanging() throws Exception {
+        lane = new KeyedJobExecutor("test", 1, 10, Duration.ofSeconds(5));
+        CountDownLatch release = new CountDownLatch(1);
+        CompletableFuture<Void> running = lane.submit("tenant-1", () -> await(release));
+        CompletableFuture<Void> chained = lane.submit("tenant-1", () -> { });
+
+        // close() shuts the pool down, then waits for the running job
+        Thread closer = new Thread(() -> {
+            try {
+                lane.close();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+        closer.start();
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (closer.getState() != Thread.State.TIMED_WAITING && System.nanoTime() < deadline) {
+            Thread.sleep(1);
+        }
+        release.countDown();
+
+        running.get(5, TimeUnit.SECONDS);
+        ExecutionException e = assertThrows(ExecutionException.class, () -> chained.get(5, TimeUnit.SECONDS));
+        assertInstanceOf(RejectedExecutionException.class, e.getCause());
+        assertEquals(1, lane.getRejected());
+        assertEquals(0, lane.getInFlight());
+        assertEquals(0, lane.getActiveKeys());
+        closer.join(5_000);
+    }
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static void sleepUninterruptibly(long millis) {
+        long end = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(millis);
+        boolean interrupted = false;
+        while (System.nanoTime() < end) {
+            try {
+                Thread.sleep(Math.max(1, TimeUnit.NANOSECONDS.toMillis(end - System.nanoTime())));
+            } catch (InterruptedException e) {
+                interrupted = true;
+            }
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(10, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
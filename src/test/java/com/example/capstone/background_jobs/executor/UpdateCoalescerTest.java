@@ -0,0 +1,117 @@
+package com.example.capstone.background_jobs.executor;
+
+import com.example.capstone.background_jobs.dto.UpdateAlertEvent;
+import com.example.capstone.background_jobs.model.UpdateEvent;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BiFunction;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class UpdateCoalescerTest {
+
+    private record Applied(UpdateAlertEvent latest, List<UpdateAlertEvent> superseded) {
+    }
+
+    private final UpdateCoalescer coalescer = new UpdateCoalescer(Duration.ofMillis(100));
+    private final List<Applied> applied = new CopyOnWriteArrayList<>();
+    private final CompletableFuture<Void> outcome = new CompletableFuture<>();
+
+    private final BiFunction<UpdateAlertEvent, List<UpdateAlertEvent>, CompletableFuture<Void>> apply =
+            (latest, superseded) -> {
+                applied.add(new Applied(latest, new ArrayList<>(superseded)));
+                return outcome;
+            };
+
+    @AfterEach
+    void tearDown() {
+        coalescer.close();
+    }
+
+    @Test
+    void appliesOnlyTheLastUpdateOfAnAlertAndPassesTheRestAsSuperseded() throws Exception {
+        UpdateAlertEvent first = event(7, "DISMISS");
+        UpdateAlertEvent second = event(7, "OPEN");
+        UpdateAlertEvent last = event(7, "RESOLVE");
+
+        List<CompletableFuture<Void>> results = List.of(
+                coalescer.submit(first, apply), coalescer.submit(second, apply), coalescer.submit(last, apply));
+        awaitApplied(1);
+
+        assertEquals(1, applied.size());
+        assertSame(last, applied.get(0).latest());
+        assertEquals(List.of(first, second), applied.get(0).superseded());
+        results.forEach(r -> assertFalse(r.isDone(), "acked before the write finished"));
+
+        outcome.complete(null);
+        for (CompletableFuture<Void> r : results) {
+            r.get(1, TimeUnit.SECONDS);
+        }
+    }
+
+    @Test
+    void supersededJobsShareTheFailureOfTheWrite() throws Exception {
+        CompletableFuture<Void> older = coalescer.submit(event(7, "DISMISS"), apply);
+        CompletableFuture<Void> newer = coalescer.submit(event(7, "OPEN"), apply);
+        awaitApplied(1);
+
+        IllegalStateException failure = new IllegalStateException("GitHub said no");
+        outcome.completeExceptionally(failure);
+
+        for (CompletableFuture<Void> r : List.of(older, newer)) {
+            ExecutionException e = assertThrows(ExecutionException.class, () -> r.get(1, TimeUnit.SECONDS));
+            assertSame(failure, e.getCause());
+        }
+    }
+
+    @Test
+    void differentAlertsAreNotCoalesced() throws Exception {
+        coalescer.submit(event(7, "DISMISS"), apply);
+        coalescer.submit(event(8, "DISMISS"), apply);
+        awaitApplied(2);
+
+        assertTrue(applied.stream().allMatch(a -> a.superseded().isEmpty()));
+    }
+
+    @Test
+    void anUpdateAfterTheWindowClosedStartsANewOne() throws Exception {
+        coalescer.submit(event(7, "DISMISS"), apply);
+        awaitApplied(1);
+        UpdateAlertEvent later = event(7, "OPEN");
+        coalescer.submit(later, apply);
+        awaitApplied(2);
+
+        assertSame(later, applied.get(1).latest());
+        assertTrue(applied.get(1).superseded().isEmpty());
+    }
+
+    @Test
+    void zeroWindowDisablesCoalescing() {
+        assertFalse(new UpdateCoalescer(Duration.ZERO).isEnabled());
+        assertTrue(coalescer.isEnabled());
+    }
+
+    private void awaitApplied(int count) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (applied.size() < count && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+        }
+        assertEquals(count, applied.size());
+    }
+
+    private static UpdateAlertEvent event(long alertNumber, String newState) {
+        return new UpdateAlertEvent(null, new UpdateEvent("1", "code_scanning", alertNumber, newState, "other"));
+    }
+}
@@ -0,0 +1,140 @@
+package com.example.capstone.background_jobs.github;
+
+import com.example.capstone.background_jobs.retry.TransientJobException;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class GithubRateLimiterTest {
+
+    private final GithubRateLimiter limiter = new GithubRateLimiter(6000, 10, 4, 50, Duration.ofSeconds(5));
+
+    @Test
+    void plainSuccessIsNotALimit() throws Exception {
+        assertFalse(limiter.onResponse("pat", 200, headers("4000", secondsFromNow(3600), null)));
+        limiter.acquire("pat").get(1, TimeUnit.SECONDS).close();
+    }
+
+    @Test
+    void tooManyRequestsIsALimitAndHoldsTheTokenForRetryAfter() {
+        assertTrue(limiter.onResponse("pat", 429, headers(null, null, "120")));
+
+        assertFailsFast(limiter.acquire("pat"));
+    }
+
+    @Test
+    void retryAfterAsAnHttpDateHoldsTheTokenUntilThatTime() {
+        String inTwoMinutes = DateTimeFormatter.RFC_1123_DATE_TIME
+                .format(Instant.now().plusSeconds(120).atOffset(ZoneOffset.UTC));
+
+        assertTrue(limiter.onResponse("pat", 429, headers(null, null, inTwoMinutes)));
+
+        assertFailsFast(limiter.acquire("pat"));
+    }
+
+    @Test
+    void retryAfterIsReadAsSecondsOrAnHttpDate() {
+        long now = 1_700_000_000_000L;
+
+        assertEquals(now + 120_000, GithubRateLimiter.retryAfterDeadline(" 120 ", now));
+        assertEquals(1_445_412_480_000L,
+                GithubRateLimiter.retryAfterDeadline("Wed, 21 Oct 2015 07:28:00 GMT", now));
+    }
+
+    @Test
+    void unreadableRetryAfterFallsBackToAMinute() {
+        long now = 1_700_000_000_000L;
+
+        assertEquals(now + 60_000, GithubRateLimiter.retryAfterDeadline("soon", now));
+        assertTrue(limiter.onResponse("pat", 429, headers(null, null, "soon")));
+        assertFailsFast(limiter.acquire("pat"));
+    }
+
+    @Test
+    void anEarlierHintDoesNotShortenAPause() {
+        limiter.onResponse("pat", 429, headers(null, null, "120"));
+        limiter.onResponse("pat", 429, headers(null, null, "0"));
+
+        assertFailsFast(limiter.acquire("pat"));
+    }
+
+    @Test
+    void forbiddenWithNothingRemainingIsALimit() {
+        assertTrue(limiter.onResponse("pat", 403, headers("0", secondsFromNow(3600), null)));
+
+        assertFailsFast(limiter.acquire("pat"));
+    }
+
+    @Test
+    void forbiddenForOtherReasonsIsNotALimit() throws Exception {
+        assertFalse(limiter.onResponse("pat", 403, headers("4000", secondsFromNow(3600), null)));
+        limiter.acquire("pat").get(1, TimeUnit.SECONDS).close();
+    }
+
+    @Test
+    void secondaryLimitWithoutHintsHoldsTheTokenForAMinute() {
+        assertTrue(limiter.onResponse("pat", 429, new HttpHeaders()));
+
+        assertFailsFast(limiter.acquire("pat"));
+    }
+
+    @Test
+    void reserveReachedHoldsTheTokenUntilReset() {
+        assertFalse(limiter.onResponse("pat", 200, headers("10", secondsFromNow(3600), null)));
+
+        assertFailsFast(limiter.acquire("pat"));
+    }
+
+    @Test
+    void budgetIsFullAgainOnceTheResetTimeHasPassed() throws Exception {
+        assertFalse(limiter.onResponse("pat", 200, headers("0", secondsFromNow(-1), null)));
+
+        limiter.acquire("pat").get(1, TimeUnit.SECONDS).close();
+    }
+
+    @Test
+    void anExhaustedTokenDoesNotHoldBackOtherTokens() throws Exception {
+        limiter.onResponse("exhausted", 403, headers("0", secondsFromNow(3600), null));
+
+        assertFailsFast(limiter.acquire("exhausted"));
+        limiter.acquire("other").get(1, TimeUnit.SECONDS).close();
+    }
+
+    private static void assertFailsFast(CompletableFuture<GithubRateLimiter.Permit> permit) {
+        assertTrue(permit.isDone(), "should fail right away instead of waiting past max-wait");
+        ExecutionException e = assertThrows(ExecutionException.class, permit::get);
+        assertInstanceOf(TransientJobException.class, e.getCause());
+    }
+
+    private static HttpHeaders headers(String remaining, String reset, String retryAfter) {
+        HttpHeaders headers = new HttpHeaders();
+        if (remaining != null) {
+            headers.set("X-RateLimit-Remaining", remaining);
+            headers.set("X-RateLimit-Limit", "5000");
+        }
+        if (reset != null) {
+            headers.set("X-RateLimit-Reset", reset);
+        }
+        if (retryAfter != null) {
+            headers.set("Retry-After", retryAfter);
+        }
+        return headers;
+    }
+
+    private static String secondsFromNow(long seconds) {
+        return String.valueOf(System.currentTimeMillis() / 1000 + seconds);
+    }
+}
@@ -0,0 +1,112 @@
+package com.example.capstone.background_jobs.http;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class CircuitBreakerTest {
+
+    private static final Duration OPEN_FOR = Duration.ofMillis(50);
+
+    // opens at a 50% failure rate over the last 4 calls, once 4 are in; one half-open probe
+    private final CircuitBreaker breaker = new CircuitBreaker("api.github.com", 0.5, 4, 4, OPEN_FOR, 1);
+
+    @Test
+    void staysClosedUntilMinimumCallsAreIn() {
+        breaker.onFailure();
+        breaker.onFailure();
+        breaker.onFailure();
+
+        assertEquals(CircuitBreaker.State.CLOSED, breaker.getState());
+        assertTrue(breaker.tryAcquire());
+    }
+
+    @Test
+    void opensWhenFailureRateReachesThresholdAndRefusesCalls() {
+        breaker.onSuccess();
+        breaker.onSuccess();
+        breaker.onFailure();
+        assertEquals(CircuitBreaker.State.CLOSED, breaker.getState());
+
+        breaker.onFailure();
+
+        assertEquals(CircuitBreaker.State.OPEN, breaker.getState());
+        assertFalse(breaker.tryAcquire());
+    }
+
+    @Test
+    void onlyTheLastWindowOfCallsCounts() {
+        breaker.onFailure();
+        for (int i = 0; i < 4; i++) {
+            breaker.onSuccess();
+        }
+        // the early failure has slid out of the window: 1 of 4 is below the threshold
+        breaker.onFailure();
+
+        assertEquals(CircuitBreaker.State.CLOSED, breaker.getState());
+    }
+
+    @Test
+    void letsOneProbeThroughAfterOpenDurationAndClosesOnSuccess() throws InterruptedException {
+        tripOpen();
+        Thread.sleep(OPEN_FOR.toMillis() * 2);
+
+        assertTrue(breaker.tryAcquire());
+        assertEquals(CircuitBreaker.State.HALF_OPEN, breaker.getState());
+        assertFalse(breaker.tryAcquire(), "second probe while the first is in flight");
+
+        breaker.onSuccess();
+
+        assertEquals(CircuitBreaker.State.CLOSED, breaker.getState());
+        assertTrue(breaker.tryAcquire());
+    }
+
+    @Test
+    void failedProbeOpensAgain() throws InterruptedException {
+        tripOpen();
+        Thread.sleep(OPEN_FOR.toMillis() * 2);
+        assertTrue(breaker.tryAcquire());
+
+        breaker.onFailure();
+
+        assertEquals(CircuitBreaker.State.OPEN, breaker.getState());
+        assertFalse(breaker.tryAcquire());
+    }
+
+    @Test
+    void ignoredProbeFreesItsSlot() throws InterruptedException {
+        tripOpen();
+        Thread.sleep(OPEN_FOR.toMillis() * 2);
+        assertTrue(breaker.tryAcquire());
+
+        breaker.onIgnored();
+
+        assertTrue(breaker.tryAcquire());
+        assertEquals(CircuitBreaker.State.HALF_OPEN, breaker.getState());
+    }
+
+    @Test
+    void closingStartsWithAFreshWindow() throws InterruptedException {
+        tripOpen();
+        Thread.sleep(OPEN_FOR.toMillis() * 2);
+        breaker.tryAcquire();
+        breaker.onSuccess();
+
+        breaker.onFailure();
+        breaker.onFailure();
+        breaker.onFailure();
+
+        assertEquals(CircuitBreaker.State.CLOSED, breaker.getState());
+    }
+
+    private void tripOpen() {
+        for (int i = 0; i < 4; i++) {
+            breaker.onFailure();
+        }
+        assertEquals(CircuitBreaker.State.OPEN, breaker.getState());
+    }
+}
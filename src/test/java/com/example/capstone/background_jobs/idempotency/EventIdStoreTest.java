@@ -0,0 +1,109 @@
+package com.example.capstone.background_jobs.idempotency;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class EventIdStoreTest {
+
+    @TempDir
+    Path dir;
+
+    private EventIdStore open(Duration ttl, int capacity) throws Exception {
+        EventIdStore store = new EventIdStore(true, dir.resolve("event-ids.log").toString(), ttl, capacity);
+        store.open();
+        return store;
+    }
+
+    @Test
+    void remembersRecordedEventIds() throws Exception {
+        try (EventIdStore store = open(Duration.ofDays(7), 100)) {
+            assertFalse(store.contains("a"));
+            store.record("a");
+            store.record("a");
+
+            assertTrue(store.contains("a"));
+            assertFalse(store.contains("b"));
+            assertEquals(1, store.size());
+        }
+    }
+
+    @Test
+    void onlyOneDeliveryClaimsAnEventAtATime() throws Exception {
+        try (EventIdStore store = open(Duration.ofDays(7), 100)) {
+            assertEquals(EventIdStore.Claim.CLAIMED, store.tryClaim("a"));
+            assertEquals(EventIdStore.Claim.IN_PROGRESS, store.tryClaim("a"));
+            assertEquals(EventIdStore.Claim.CLAIMED, store.tryClaim("b"));
+
+            // failed: nothing recorded, so the retry claims it again
+            store.release("a");
+            assertEquals(EventIdStore.Claim.CLAIMED, store.tryClaim("a"));
+        }
+    }
+
+    @Test
+    void recordedEventIsDoneForLaterDeliveries() throws Exception {
+        try (EventIdStore store = open(Duration.ofDays(7), 100)) {
+            assertEquals(EventIdStore.Claim.CLAIMED, store.tryClaim("a"));
+            store.record("a");
+            store.release("a");
+
+            assertEquals(EventIdStore.Claim.DONE, store.tryClaim("a"));
+            assertEquals(EventIdStore.Claim.DONE, store.tryClaim("a"));
+        }
+    }
+
+    @Test
+    void keepsEventIdsAcrossReopen() throws Exception {
+        try (EventIdStore store = open(Duration.ofDays(7), 100)) {
+            for (int i = 0; i < 50; i++) {
+                store.record("event-" + i);
+            }
+        }
+
+        try (EventIdStore reopened = open(Duration.ofDays(7), 100)) {
+            assertEquals(50, reopened.size());
+            for (int i = 0; i < 50; i++) {
+                assertTrue(reopened.contains("event-" + i));
+            }
+            assertFalse(reopened.contains("event-50"));
+        }
+    }
+
+    @Test
+    void growsWhenTheLogFillsWithLiveEntries() throws Exception {
+        try (EventIdStore store = open(Duration.ofDays(7), 16)) {
+            for (int i = 0; i < 100; i++) {
+                store.record("event-" + i);
+            }
+
+            assertEquals(100, store.size());
+            for (int i = 0; i < 100; i++) {
+                assertTrue(store.contains("event-" + i));
+            }
+        }
+        assertTrue(Files.size(dir.resolve("event-ids.log")) > 16 + 100 * 24L);
+    }
+
+    @Test
+    void compactionDropsEntriesOlderThanTheTtl() throws Exception {
+        try (EventIdStore store = open(Duration.ofMillis(100), 100)) {
+            store.record("old");
+            Thread.sleep(200);
+            store.record("new");
+
+            store.compact();
+
+            assertEquals(1, store.size());
+            assertFalse(store.contains("old"));
+            assertTrue(store.contains("new"));
+        }
+    }
+}
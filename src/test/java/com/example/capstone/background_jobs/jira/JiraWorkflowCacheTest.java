@@ -0,0 +1,77 @@
+package com.example.capstone.background_jobs.jira;
+
+import com.example.capstone.background_jobs.jira.JiraWorkflowCache.Edge;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class JiraWorkflowCacheTest {
+
+    private static final String PROJECT = JiraWorkflowCache.projectOf("acme.atlassian.net", "SEC");
+
+    private final JiraWorkflowCache cache = new JiraWorkflowCache();
+
+    @Test
+    void unknownProjectHasNoPath() {
+        assertNull(cache.pathToDone(PROJECT, "1"));
+    }
+
+    @Test
+    void statusWithoutTransitionsIsFinal() {
+        cache.learn(PROJECT, "10", List.of());
+
+        assertTrue(cache.pathToDone(PROJECT, "10").isEmpty());
+    }
+
+    @Test
+    void followsShortestLearnedPathToADoneStatus() {
+        Edge start = new Edge("11", "Start", "3", false);
+        Edge review = new Edge("21", "Review", "4", false);
+        Edge close = new Edge("31", "Close", "6", true);
+        Edge resolve = new Edge("41", "Resolve", "6", true);
+        cache.learn(PROJECT, "1", List.of(start));
+        cache.learn(PROJECT, "3", List.of(review, resolve));
+        cache.learn(PROJECT, "4", List.of(close));
+
+        assertEquals(List.of(start, resolve), cache.pathToDone(PROJECT, "1"));
+        assertEquals(List.of(close), cache.pathToDone(PROJECT, "4"));
+    }
+
+    @Test
+    void reachingAFinalStatusEndsThePathEvenWithoutTheDoneFlag() {
+        Edge archive = new Edge("51", "Archive", "9", false);
+        cache.learn(PROJECT, "1", List.of(archive));
+        cache.learn(PROJECT, "9", List.of());
+
+        assertEquals(List.of(archive), cache.pathToDone(PROJECT, "1"));
+    }
+
+    @Test
+    void noPathWhenTheLearnedTransitionsNeverReachDone() {
+        cache.learn(PROJECT, "1", List.of(new Edge("11", "Start", "3", false)));
+        cache.learn(PROJECT, "3", List.of(new Edge("12", "Stop", "1", false)));
+
+        assertNull(cache.pathToDone(PROJECT, "1"));
+        assertNull(cache.pathToDone(PROJECT, "7"));
+    }
+
+    @Test
+    void projectsAreLearnedSeparately() {
+        cache.learn(PROJECT, "1", List.of(new Edge("31", "Close", "6", true)));
+
+        assertNull(cache.pathToDone(JiraWorkflowCache.projectOf("acme.atlassian.net", "OPS"), "1"));
+    }
+
+    @Test
+    void invalidateForgetsTheWorkflow() {
+        cache.learn(PROJECT, "1", List.of(new Edge("31", "Close", "6", true)));
+
+        cache.invalidate(PROJECT);
+
+        assertNull(cache.pathToDone(PROJECT, "1"));
+    }
+}
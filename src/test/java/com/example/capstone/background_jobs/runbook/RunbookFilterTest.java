@@ -0,0 +1,109 @@
+package com.example.capstone.background_jobs.runbook;
+
+import com.example.capstone.background_jobs.model.AlertState;
+import com.example.capstone.background_jobs.model.Findings;
+import com.example.capstone.background_jobs.model.Severity;
+import org.junit.jupiter.api.Test;
+
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class RunbookFilterTest {
+
+    @Test
+    void emptyFiltersMatchEverything() {
+        assertSame(RunbookFilter.MATCH_ALL, RunbookFilter.compile(Map.of()));
+        assertSame(RunbookFilter.MATCH_ALL, RunbookFilter.compile(null));
+        assertTrue(RunbookFilter.MATCH_ALL.matches(new Findings()));
+    }
+
+    @Test
+    void stateAcceptsOneValueAListOrAnInSet() {
+        RunbookFilter single = RunbookFilter.compile(Map.of("state", "open"));
+        RunbookFilter list = RunbookFilter.compile(Map.of("state", List.of("OPEN", "CONFIRM")));
+        RunbookFilter in = RunbookFilter.compile(Map.of("state", Map.of("in", List.of("confirm"))));
+
+        assertTrue(single.matches(finding(AlertState.OPEN, Severity.LOW, "DEPENDABOT", null)));
+        assertFalse(single.matches(finding(AlertState.FIXED, Severity.LOW, "DEPENDABOT", null)));
+        assertTrue(list.matches(finding(AlertState.CONFIRM, Severity.LOW, "DEPENDABOT", null)));
+        assertTrue(in.matches(finding(AlertState.CONFIRM, Severity.LOW, "DEPENDABOT", null)));
+        assertFalse(in.matches(finding(AlertState.OPEN, Severity.LOW, "DEPENDABOT", null)));
+        assertFalse(single.matches(finding(null, Severity.LOW, "DEPENDABOT", null)));
+    }
+
+    @Test
+    void severityRangeCountsCriticalAsHighest() {
+        RunbookFilter atLeastHigh = RunbookFilter.compile(Map.of("severity", Map.of("min", "high")));
+        RunbookFilter atMostMedium = RunbookFilter.compile(Map.of("severity", Map.of("max", "MEDIUM")));
+
+        assertEquals(EnumSet.of(Severity.CRITICAL, Severity.HIGH), atLeastHigh.severities());
+        assertEquals(EnumSet.of(Severity.MEDIUM, Severity.LOW, Severity.INFORMATIONAL), atMostMedium.severities());
+        assertTrue(atLeastHigh.matches(finding(AlertState.OPEN, Severity.CRITICAL, "CODE_SCANNING", null)));
+        assertFalse(atLeastHigh.matches(finding(AlertState.OPEN, Severity.MEDIUM, "CODE_SCANNING", null)));
+    }
+
+    @Test
+    void toolTypeIsCaseInsensitive() {
+        RunbookFilter filter = RunbookFilter.compile(Map.of("toolType", "dependabot"));
+
+        assertTrue(filter.matches(finding(AlertState.OPEN, Severity.LOW, "DEPENDABOT", null)));
+        assertTrue(filter.matches(finding(AlertState.OPEN, Severity.LOW, "Dependabot", null)));
+        assertFalse(filter.matches(finding(AlertState.OPEN, Severity.LOW, "CODE_SCANNING", null)));
+        assertFalse(filter.matches(finding(AlertState.OPEN, Severity.LOW, null, null)));
+    }
+
+    @Test
+    void cvssThresholdSkipsFindingsWithoutANumericScore() {
+        RunbookFilter filter = RunbookFilter.compile(Map.of("cvss", Map.of("min", 7.0)));
+
+        assertTrue(filter.matches(finding(AlertState.OPEN, Severity.HIGH, "DEPENDABOT", "7.5")));
+        assertTrue(filter.matches(finding(AlertState.OPEN, Severity.HIGH, "DEPENDABOT", "7.0")));
+        assertFalse(filter.matches(finding(AlertState.OPEN, Severity.HIGH, "DEPENDABOT", "6.9")));
+        assertFalse(filter.matches(finding(AlertState.OPEN, Severity.HIGH, "DEPENDABOT", "n/a")));
+        assertFalse(filter.matches(finding(AlertState.OPEN, Severity.HIGH, "DEPENDABOT", null)));
+    }
+
+    @Test
+    void allConstraintsMustHold() {
+        RunbookFilter filter = RunbookFilter.compile(Map.of(
+                "state", "OPEN", "severity", "CRITICAL", "toolType", List.of("CODE_SCANNING"), "cvss", "9"));
+
+        assertTrue(filter.matches(finding(AlertState.OPEN, Severity.CRITICAL, "CODE_SCANNING", "9.8")));
+        assertFalse(filter.matches(finding(AlertState.OPEN, Severity.CRITICAL, "CODE_SCANNING", "8.8")));
+        assertFalse(filter.matches(finding(AlertState.FIXED, Severity.CRITICAL, "CODE_SCANNING", "9.8")));
+    }
+
+    @Test
+    void unknownValueMatchesNothing() {
+        RunbookFilter filter = RunbookFilter.compile(Map.of("severity", "URGENT"));
+
+        assertSame(RunbookFilter.MATCH_NONE, filter);
+        assertFalse(filter.matches(finding(AlertState.OPEN, Severity.CRITICAL, "DEPENDABOT", "10")));
+    }
+
+    @Test
+    void unknownKeysAndBlankValuesAreNoConstraint() {
+        RunbookFilter filter = RunbookFilter.compile(Map.of("assignee", "bob", "state", " "));
+
+        assertNull(filter.states());
+        assertNull(filter.severities());
+        assertNull(filter.toolTypes());
+        assertTrue(filter.matches(finding(AlertState.FIXED, Severity.LOW, "DEPENDABOT", null)));
+    }
+
+    static Findings finding(AlertState state, Severity severity, String toolType, String cvss) {
+        Findings finding = new Findings();
+        finding.setState(state);
+        finding.setSeverity(severity);
+        finding.setToolType(toolType);
+        finding.setCvss(cvss);
+        return finding;
+    }
+}
@@ -0,0 +1,103 @@
+package com.example.capstone.background_jobs.runbook;
+
+import com.example.capstone.background_jobs.repository.RunbookConfigRepository;
+import com.example.capstone.background_jobs.repository.RunbookConfigRepository.RunbookTriggerRow;
+import com.example.capstone.background_jobs.repository.RunbookConfigRepository.RunbookVersionRow;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class RunbookIndexTest {
+
+    private static final LocalDateTime UPDATED = LocalDateTime.of(2024, 1, 1, 12, 0);
+
+    private final RunbookConfigRepository repository = mock(RunbookConfigRepository.class);
+    private final RunbookIndex index = new RunbookIndex(repository, new ObjectMapper());
+
+    private record Row(Integer tenantId, String runbookId, String trigger, LocalDateTime updatedAt)
+            implements RunbookTriggerRow {
+
+        @Override
+        public Integer getTenantId() {
+            return tenantId;
+        }
+
+        @Override
+        public String getRunbookId() {
+            return runbookId;
+        }
+
+        @Override
+        public String getTrigger() {
+            return trigger;
+        }
+
+        @Override
+        public LocalDateTime getUpdatedAt() {
+            return updatedAt;
+        }
+
+        @Override
+        public String getFiltersJson() {
+            return "{}";
+        }
+
+        @Override
+        public String getActionsJson() {
+            return "{\"create_ticket\": true}";
+        }
+    }
+
+    @Test
+    void unchangedRunbooksAreNotReloaded() {
+        Row rb1 = new Row(1, "rb-1", "NEW_SCAN", UPDATED);
+        when(repository.findEnabledTriggers()).thenReturn(List.<RunbookTriggerRow>of(rb1));
+        when(repository.findIndexVersion()).thenReturn(List.<RunbookVersionRow>of(new Row(1, "rb-1", "NEW_SCAN", UPDATED)));
+
+        assertFalse(index.matcherFor(1, "new_scan").isEmpty());
+        index.refreshIfChanged();
+
+        verify(repository, times(1)).findEnabledTriggers();
+    }
+
+    @Test
+    void disablingOneRunbookAndEnablingAnotherInTheSameIntervalReloads() {
+        // same count and same latest updated_at before and after
+        Row tenant1 = new Row(1, "rb-1", "NEW_SCAN", UPDATED);
+        Row tenant2 = new Row(2, "rb-2", "NEW_SCAN", UPDATED);
+        when(repository.findEnabledTriggers())
+                .thenReturn(List.<RunbookTriggerRow>of(tenant1), List.<RunbookTriggerRow>of(tenant2));
+        when(repository.findIndexVersion()).thenReturn(List.<RunbookVersionRow>of(tenant2));
+
+        assertFalse(index.matcherFor(1, "NEW_SCAN").isEmpty());
+        assertTrue(index.matcherFor(2, "NEW_SCAN").isEmpty());
+
+        index.refreshIfChanged();
+
+        assertTrue(index.matcherFor(1, "NEW_SCAN").isEmpty());
+        assertFalse(index.matcherFor(2, "NEW_SCAN").isEmpty());
+    }
+
+    @Test
+    void editedConfigReloads() {
+        Row before = new Row(1, "rb-1", "NEW_SCAN", UPDATED);
+        Row after = new Row(1, "rb-1", "NEW_SCAN", UPDATED.plusSeconds(1));
+        when(repository.findEnabledTriggers())
+                .thenReturn(List.<RunbookTriggerRow>of(before), List.<RunbookTriggerRow>of(after));
+        when(repository.findIndexVersion()).thenReturn(List.<RunbookVersionRow>of(after));
+
+        index.matcherFor(1, "NEW_SCAN");
+        index.refreshIfChanged();
+
+        verify(repository, times(2)).findEnabledTriggers();
+    }
+}
@@ -0,0 +1,111 @@
+package com.example.capstone.background_jobs.runbook;
+
+import com.example.capstone.background_jobs.model.AlertState;
+import com.example.capstone.background_jobs.model.Severity;
+import com.example.capstone.background_jobs.runbook.RunbookIndex.CompiledRunbook;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+
+import static com.example.capstone.background_jobs.runbook.RunbookFilterTest.finding;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class RunbookMatcherTest {
+
+    private static final Map<String, Object> TICKET = Map.of("create_ticket", true);
+
+    @Test
+    void findingMatchingNoRunbookGetsNoPlan() {
+        RunbookMatcher matcher = new RunbookMatcher(List.of(
+                runbook("rb-1", Map.of("severity", "CRITICAL"), TICKET)));
+
+        assertNull(matcher.planFor(finding(AlertState.OPEN, Severity.LOW, "DEPENDABOT", null)));
+    }
+
+    @Test
+    void singleMatchReturnsThatRunbooksPlan() {
+        CompiledRunbook critical = runbook("rb-1", Map.of("severity", "CRITICAL"), TICKET);
+        RunbookMatcher matcher = new RunbookMatcher(List.of(critical));
+
+        assertSame(critical.actions(), matcher.planFor(finding(AlertState.OPEN, Severity.CRITICAL, "DEPENDABOT", null)));
+    }
+
+    @Test
+    void toolSpecificAndAnyToolRunbooksBothApply() {
+        CompiledRunbook anyTool = runbook("rb-2", Map.of("state", "OPEN"), TICKET);
+        RunbookMatcher matcher = new RunbookMatcher(List.of(
+                runbook("rb-1", Map.of("toolType", "dependabot"), update("OPEN", "DISMISS")), anyTool));
+
+        RunbookActionPlan plan = matcher.planFor(finding(AlertState.OPEN, Severity.HIGH, "DEPENDABOT", null));
+
+        assertEquals("DISMISS", plan.updateFinding().githubAction());
+        assertTrue(plan.createTicket());
+        assertSame(anyTool.actions(),
+                matcher.planFor(finding(AlertState.OPEN, Severity.HIGH, "CODE_SCANNING", null)));
+    }
+
+    @Test
+    void firstRunbookWhoseFromFitsSuppliesTheUpdate() {
+        RunbookMatcher matcher = new RunbookMatcher(List.of(
+                runbook("rb-1", Map.of(), update("FIXED", "OPEN")),
+                runbook("rb-2", Map.of(), update("OPEN", "RESOLVE")),
+                runbook("rb-3", Map.of(), update("OPEN", "DISMISS"))));
+
+        RunbookActionPlan plan = matcher.planFor(finding(AlertState.OPEN, Severity.LOW, "DEPENDABOT", null));
+
+        assertEquals("RESOLVE", plan.updateFinding().githubAction());
+        assertFalse(plan.createTicket());
+    }
+
+    @Test
+    void filterIsStillCheckedForWhatTheIndexDoesNotCover() {
+        RunbookMatcher matcher = new RunbookMatcher(List.of(
+                runbook("rb-1", Map.of("severity", "HIGH", "cvss", Map.of("min", 8.0)), TICKET)));
+
+        assertNull(matcher.planFor(finding(AlertState.OPEN, Severity.HIGH, "DEPENDABOT", "7.5")));
+        assertTrue(matcher.planFor(finding(AlertState.OPEN, Severity.HIGH, "DEPENDABOT", "8.1")).createTicket());
+    }
+
+    @Test
+    void findingWithoutStateOnlyMatchesRunbooksWithoutAStateFilter() {
+        RunbookMatcher matcher = new RunbookMatcher(List.of(
+                runbook("rb-1", Map.of("state", "OPEN"), TICKET)));
+
+        assertNull(matcher.planFor(finding(null, Severity.HIGH, "DEPENDABOT", null)));
+        assertTrue(new RunbookMatcher(List.of(runbook("rb-2", Map.of(), TICKET)))
+                .planFor(finding(null, null, null, null)).createTicket());
+    }
+
+    @Test
+    void runbooksWithoutActionsAreLeftOut() {
+        RunbookMatcher matcher = new RunbookMatcher(List.of(runbook("rb-1", Map.of(), Map.of())));
+
+        assertTrue(matcher.isEmpty());
+        assertFalse(matcher.createsTickets());
+        assertNull(matcher.planFor(finding(AlertState.OPEN, Severity.LOW, "DEPENDABOT", null)));
+    }
+
+    @Test
+    void createsTicketsWhenAnyRunbookDoes() {
+        RunbookMatcher matcher = new RunbookMatcher(List.of(
+                runbook("rb-1", Map.of(), update("OPEN", "DISMISS")),
+                runbook("rb-2", Map.of("severity", "CRITICAL"), TICKET)));
+
+        assertTrue(matcher.createsTickets());
+        assertEquals(2, matcher.filters().size());
+    }
+
+    private static Map<String, Object> update(String from, String to) {
+        return Map.of("update_finding", Map.of("from", from, "to", to));
+    }
+
+    private static CompiledRunbook runbook(String id, Map<String, Object> filters, Map<String, Object> actions) {
+        return new CompiledRunbook(id, LocalDateTime.now(), RunbookFilter.compile(filters), RunbookActionPlan.compile(actions));
+    }
+}
@@ -0,0 +1,226 @@
+package com.example.capstone.background_jobs.service;
+
+import com.example.capstone.background_jobs.dto.NewScanRunbookEvent;
+import com.example.capstone.background_jobs.dto.UpdateAlertEvent;
+import com.example.capstone.background_jobs.executor.PriorityJobScheduler;
+import com.example.capstone.background_jobs.github.AlertUpdateResult;
+import com.example.capstone.background_jobs.github.GithubApiClient;
+import com.example.capstone.background_jobs.idempotency.EventIdStore;
+import com.example.capstone.background_jobs.jira.JiraClient;
+import com.example.capstone.background_jobs.model.Event;
+import com.example.capstone.background_jobs.model.Findings;
+import com.example.capstone.background_jobs.model.NewScanRunbookPayload;
+import com.example.capstone.background_jobs.model.Severity;
+import com.example.capstone.background_jobs.model.TenantEntity;
+import com.example.capstone.background_jobs.model.UpdateEvent;
+import com.example.capstone.background_jobs.producer.AcknowledgementProducer;
+import com.example.capstone.background_jobs.repository.AckOutboxRepository;
+import com.example.capstone.background_jobs.repository.TenantTicketRepository;
+import com.example.capstone.background_jobs.retry.JobRetryRouter;
+import com.example.capstone.background_jobs.retry.PartialBatchFailureException;
+import com.example.capstone.background_jobs.retry.TransientJobException;
+import com.example.capstone.background_jobs.runbook.RunbookActionPlan;
+import com.example.capstone.background_jobs.runbook.RunbookFilter;
+import com.example.capstone.background_jobs.runbook.RunbookIndex;
+import com.example.capstone.background_jobs.runbook.RunbookIndex.CompiledRunbook;
+import com.example.capstone.background_jobs.runbook.RunbookMatcher;
+import com.example.capstone.background_jobs.tenant.TenantContextCache;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.InOrder;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Consumer;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyBoolean;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class BackgroundJobServiceTest {
+
+    private static final String INDEX = "findings-1";
+
+    private final TenantContextCache tenantContexts = mock(TenantContextCache.class);
+    private final GithubApiClient github = mock(GithubApiClient.class);
+    private final ElasticsearchClientService es = mock(ElasticsearchClientService.class);
+    private final AcknowledgementProducer acks = mock(AcknowledgementProducer.class);
+    private final RunbookIndex runbookIndex = mock(RunbookIndex.class);
+    private final PriorityJobScheduler scheduler = mock(PriorityJobScheduler.class);
+    private final JiraClient jira = mock(JiraClient.class);
+    private final BackgroundJobService service = new BackgroundJobService(
+            tenantContexts, github, es, acks,
+            mock(TenantTicketRepository.class), runbookIndex, scheduler,
+            mock(AckOutboxRepository.class), mock(TransactionTemplate.class), jira,
+            mock(JobRetryRouter.class), mock(EventIdStore.class));
+
+    @BeforeEach
+    void setUp() {
+        TenantEntity tenant = new TenantEntity("acme");
+        tenant.setEsIndex(INDEX);
+        tenant.setOwner("acme");
+        tenant.setRepo("api");
+        tenant.setPersonalAccessToken("pat");
+        when(tenantContexts.getTenant(1L)).thenReturn(tenant);
+        when(github.updateDependabotAlertState(any(), any(), any(), any()))
+                .thenReturn(AlertUpdateResult.UPDATED);
+    }
+
+    @Test
+    void lastUpdateOfEachAlertWinsWithOneEsWritePerState() throws Exception {
+        UpdateAlertEvent dismiss7 = update("e1", 7, "DISMISS");
+        UpdateAlertEvent dismiss8 = update("e2", 8, "DISMISS");
+        UpdateAlertEvent reopen7 = update("e3", 7, "OPEN");
+
+        service.handleUpdateFindingBatch(1L, List.of(dismiss7, dismiss8, reopen7));
+
+        // alert 7 ends up OPEN, so only alert 8 is written as SUPPRESSED, and in event order
+        InOrder order = inOrder(es);
+        order.verify(es).updateFindingsInEs(INDEX, List.of(8L), "SUPPRESSED");
+        order.verify(es).updateFindingsInEs(INDEX, List.of(7L), "OPEN");
+        verify(es, never()).updateFindingsInEs(INDEX, List.of(7L, 8L), "SUPPRESSED");
+        verify(acks).sendUpdateAck("e1", true);
+        verify(acks).sendUpdateAck("e2", true);
+        verify(acks).sendUpdateAck("e3", true);
+    }
+
+    @Test
+    void alertsWithTheSameFinalStateShareOneWrite() throws Exception {
+        service.handleUpdateFindingBatch(1L, List.of(update("e1", 7, "DISMISS"), update("e2", 8, "DISMISS")));
+
+        verify(es).updateFindingsInEs(INDEX, List.of(7L, 8L), "SUPPRESSED");
+    }
+
+    @Test
+    void transientGithubFailureIsReportedAndTheRestIsAcked() throws Exception {
+        UpdateAlertEvent failing = update("e1", 7, "DISMISS");
+        UpdateAlertEvent ok = update("e2", 8, "DISMISS");
+        when(github.updateDependabotAlertState(any(), eq("7"), any(), any()))
+                .thenThrow(new TransientJobException("GitHub returned 502", null));
+
+        PartialBatchFailureException e = assertThrows(PartialBatchFailureException.class,
+                () -> service.handleUpdateFindingBatch(1L, List.of(failing, ok)));
+
+        assertEquals(List.<Event<?>>of(failing), e.getFailedEvents());
+        verify(es).updateFindingsInEs(INDEX, List.of(8L), "SUPPRESSED");
+        verify(acks).sendUpdateAck("e2", true);
+        verify(acks, never()).sendUpdateAck(eq("e1"), anyBoolean());
+    }
+
+    @Test
+    void transientEsFailureRetriesEveryUpdateOfTheAlertsInThatWrite() throws Exception {
+        UpdateAlertEvent first = update("e1", 7, "DISMISS");
+        UpdateAlertEvent again = update("e2", 7, "DISMISS");
+        UpdateAlertEvent other = update("e3", 8, "OPEN");
+        doThrow(new TransientJobException("ES returned 503", null))
+                .when(es).updateFindingsInEs(INDEX, List.of(7L), "SUPPRESSED");
+
+        PartialBatchFailureException e = assertThrows(PartialBatchFailureException.class,
+                () -> service.handleUpdateFindingBatch(1L, List.of(first, again, other)));
+
+        assertEquals(List.<Event<?>>of(first, again), e.getFailedEvents());
+        verify(acks).sendUpdateAck("e3", true);
+        verify(acks, never()).sendUpdateAck(eq("e1"), anyBoolean());
+        verify(acks, never()).sendUpdateAck(eq("e2"), anyBoolean());
+    }
+
+    @Test
+    void permanentFailureIsAckedAsFailureWithoutAnEsWrite() throws Exception {
+        when(github.updateDependabotAlertState(any(), eq("7"), any(), any()))
+                .thenReturn(AlertUpdateResult.FAILED);
+
+        service.handleUpdateFindingBatch(1L, List.of(update("e1", 7, "DISMISS")));
+
+        verify(acks).sendUpdateAck("e1", false);
+        verify(es, never()).updateFindingsInEs(anyString(), anyList(), anyString());
+    }
+
+    @Test
+    void supersededJobsShareTheAckOfTheUpdateThatReplacedThem() {
+        UpdateAlertEvent older = update("e1", 7, "OPEN");
+        UpdateAlertEvent latest = update("e2", 7, "DISMISS");
+
+        service.handleUpdateFindingBatch(1L, List.of(latest), Map.of(latest, List.of(older)));
+
+        verify(acks).sendUpdateAck("e1", true);
+        verify(acks).sendUpdateAck("e2", true);
+    }
+
+    @Test
+    void transientTicketFailureSendsTheScanToRetryInsteadOfAckingIt() throws Exception {
+        NewScanRunbookEvent scan = scanWithTicketRunbook(finding("f1", null));
+        when(jira.createIssues(any(), anyList())).thenThrow(new TransientJobException("Jira returned 503", null));
+
+        PartialBatchFailureException e = assertThrows(PartialBatchFailureException.class,
+                () -> service.handleNewScanBatch(1L, List.of(scan)));
+
+        assertEquals(List.<Event<?>>of(scan), e.getFailedEvents());
+        verify(acks, never()).sendUpdateAck(anyString(), anyBoolean());
+    }
+
+    @Test
+    void permanentTicketFailureIsSkippedAndTheScanAcked() throws Exception {
+        NewScanRunbookEvent scan = scanWithTicketRunbook(finding("f1", null));
+        when(jira.createIssues(any(), anyList())).thenThrow(new IllegalStateException("Jira returned 400"));
+
+        service.handleNewScanBatch(1L, List.of(scan));
+
+        verify(acks).sendUpdateAck(scan.getEventId(), true);
+    }
+
+    @Test
+    void retriedScanOnlyCreatesTheTicketsStillMissing() throws Exception {
+        NewScanRunbookEvent scan = scanWithTicketRunbook(finding("f1", "CAP-1"), finding("f2", null));
+        when(jira.createIssues(any(), anyList())).thenReturn(List.of("CAP-2"));
+
+        service.handleNewScanBatch(1L, List.of(scan));
+
+        verify(jira).createIssues(any(), eq(List.of(new JiraClient.NewIssue("title f2", "description f2"))));
+        verify(acks).sendUpdateAck(scan.getEventId(), true);
+    }
+
+    // a scan of the given findings for tenant 1, whose one runbook creates a ticket for every finding
+    private NewScanRunbookEvent scanWithTicketRunbook(Findings... findings) throws Exception {
+        RunbookMatcher matcher = new RunbookMatcher(List.of(new CompiledRunbook("rb-1", LocalDateTime.now(),
+                RunbookFilter.compile(Map.of()), RunbookActionPlan.compile(Map.of("create_ticket", true)))));
+        when(runbookIndex.matcherFor(1, "NEW_SCAN")).thenReturn(matcher);
+        doAnswer(inv -> {
+            inv.<Consumer<List<Findings>>>getArgument(3).accept(List.of(findings));
+            return null;
+        }).when(es).streamMatchingFindings(eq(1L), anyList(), any(), any());
+        when(scheduler.submit(any(), any(), any())).thenAnswer(inv -> {
+            inv.<Runnable>getArgument(2).run();
+            return CompletableFuture.completedFuture(null);
+        });
+        return new NewScanRunbookEvent(new NewScanRunbookPayload(1L, "DEPENDABOT", List.of("f1", "f2")), "topic");
+    }
+
+    private static Findings finding(String id, String ticketId) {
+        Findings finding = new Findings();
+        finding.setId(id);
+        finding.setTitle("title " + id);
+        finding.setDescription("description " + id);
+        finding.setSeverity(Severity.HIGH);
+        finding.setToolType("DEPENDABOT");
+        finding.setTicketId(ticketId);
+        return finding;
+    }
+
+    private static UpdateAlertEvent update(String eventId, long alertNumber, String newState) {
+        return new UpdateAlertEvent(eventId, new UpdateEvent("1", "DEPENDABOT", alertNumber, newState, "other"));
+    }
+}